@@ -29,6 +29,8 @@ import org.apex.Environment;
 import org.aquiver.handler.ErrorHandler;
 import org.aquiver.handler.ErrorHandlerResolver;
 import org.aquiver.mvc.annotation.HttpMethod;
+import org.aquiver.mvc.codec.MessageCodec;
+import org.aquiver.mvc.codec.MessageCodecResolver;
 import org.aquiver.mvc.interceptor.Interceptor;
 import org.aquiver.mvc.router.RestfulRouter;
 import org.aquiver.mvc.router.session.SessionManager;
@@ -112,6 +114,7 @@ public class Aquiver {
   private final RestfulRouter restfulRouter = apexContext.addBean(RestfulRouter.class);
   private final WebSocketResolver webSocketResolver = apexContext.addBean(WebSocketResolver.class);
   private final ErrorHandlerResolver errorHandlerResolver = apexContext.addBean(ErrorHandlerResolver.class);
+  private final MessageCodecResolver codecResolver = apexContext.addBean(MessageCodecResolver.class);
 
   private static final List<Interceptor> interceptors = new ArrayList<>();
 
@@ -614,6 +617,27 @@ public class Aquiver {
     return this;
   }
 
+  /**
+   * Register message codec, used for request bodies of its media type
+   * and for responses whose Accept header selects it
+   *
+   * @param codecClass message codec class
+   * @return this
+   */
+  public Aquiver codec(Class<? extends MessageCodec> codecClass) {
+    this.codecResolver.register(codecClass);
+    return this;
+  }
+
+  /**
+   * Get message codec resolver
+   *
+   * @return message codec resolver
+   */
+  public MessageCodecResolver codecResolver() {
+    return codecResolver;
+  }
+
   /**
    * Register interceptor
    * @param interceptor http interceptor
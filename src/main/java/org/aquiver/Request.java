@@ -30,10 +30,9 @@ import io.netty.handler.codec.http.*;
 import io.netty.handler.codec.http.cookie.Cookie;
 import io.netty.handler.codec.http.cookie.ServerCookieDecoder;
 import io.netty.handler.codec.http.multipart.*;
-import org.aquiver.mvc.http.MediaType;
+import org.aquiver.mvc.codec.MessageCodec;
 import org.aquiver.mvc.router.session.Session;
 
-import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -243,8 +242,8 @@ public class Request {
   }
 
   /**
-   * The json in the acquisition request is data, which
-   * can be obtained when the Media Type is application/json
+   * The json in the acquisition request is data, which can be obtained
+   * when the Content-Type has a registered codec, e.g. application/json
    *
    * @return Alibaba JSONObject
    */
@@ -255,33 +254,22 @@ public class Request {
 
     initJsonData.set(true);
 
-    String mediaTypeKey = "Content-Type";
-    Object contentType = headers().get(mediaTypeKey);
-    if (!Objects.isNull(contentType) &&
-            String.valueOf(contentType)
-                    .equals(MediaType.APPLICATION_JSON_VALUE)) {
-
-      JSONObject jsonParams = JSONObject.parseObject(getContent());
-      for (Object key : jsonParams.keySet()) {
-        jsonParams.put(key.toString(), jsonParams.get(key.toString()));
+    String contentType = headers().get(HttpHeaderNames.CONTENT_TYPE);
+    MessageCodec codec = Aquiver.of().codecResolver().lookup(contentType);
+    ByteBuf content = httpRequest.content();
+    if (Objects.nonNull(codec) && content.isReadable()) {
+      try {
+        JSONObject jsonParams = codec.decode(content.duplicate(), JSONObject.class);
+        if (Objects.nonNull(jsonParams)) {
+          jsonDataMap.putAll(jsonParams);
+        }
+      } catch(Exception e) {
+        throw new IllegalArgumentException("Request body can't be decoded as " + codec.mediaType(), e);
       }
-      jsonDataMap.putAll(jsonParams);
     }
     return new JSONObject(jsonDataMap);
   }
 
-  /**
-   * Get the requested content
-   *
-   * @return content string
-   */
-  private String getContent() {
-    ByteBuf content = httpRequest.content();
-    byte[] reqContent = new byte[content.readableBytes()];
-    content.readBytes(reqContent);
-    return new String(reqContent, StandardCharsets.UTF_8);
-  }
-
   /**
    * Convert its json to map
    *
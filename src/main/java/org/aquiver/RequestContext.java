@@ -26,8 +26,12 @@ package org.aquiver;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.http.*;
+import io.netty.handler.stream.ChunkedInput;
 import org.aquiver.mvc.router.RouteInfo;
 
+import java.util.Objects;
+import java.util.function.Consumer;
+
 /**
  * @author WangYi
  * @since 2020/6/27
@@ -37,10 +41,13 @@ public class RequestContext {
   private RouteInfo routeInfo;
   private final Request request;
   private final Response response;
+  private Consumer<FullHttpResponse> responseCapture;
+  private Consumer<Throwable> failureCapture;
 
   public RequestContext(FullHttpRequest httpRequest, ChannelHandlerContext context) {
     this.request = new Request(httpRequest, context);
-    this.response = new Response();
+    this.response = new Response(context, httpRequest);
+    this.response.fullResponseWriter(this::writeAndFlush);
   }
 
   public RouteInfo route() {
@@ -65,6 +72,12 @@ public class RequestContext {
 
   public void throwable(Throwable throwable) {
     this.throwable = throwable;
+    Consumer<Throwable> capture = this.failureCapture;
+    if (Objects.nonNull(capture)) {
+      this.failureCapture = null;
+      this.responseCapture = null;
+      capture.accept(throwable);
+    }
   }
 
   public void redirect(String redirectUrl) {
@@ -79,7 +92,47 @@ public class RequestContext {
     this.writeAndFlush(response);
   }
 
+  /**
+   * Register a consumer that sees the next full response before it is
+   * written, such as the output cache storing it. It must not consume the
+   * response content.
+   *
+   * @param responseCapture response consumer
+   */
+  public void captureResponse(Consumer<FullHttpResponse> responseCapture) {
+    this.responseCapture = responseCapture;
+  }
+
+  /**
+   * Register a consumer that sees the failure of the request, if it fails
+   * before a response was captured.
+   *
+   * @param failureCapture failure consumer
+   */
+  public void captureFailure(Consumer<Throwable> failureCapture) {
+    this.failureCapture = failureCapture;
+  }
+
   public void writeAndFlush(FullHttpResponse fullHttpResponse) {
+    Consumer<FullHttpResponse> capture = this.responseCapture;
+    if (Objects.nonNull(capture)) {
+      this.responseCapture = null;
+      this.failureCapture = null;
+      capture.accept(fullHttpResponse);
+    }
     request().channelHandlerContext().writeAndFlush(fullHttpResponse).addListener(ChannelFutureListener.CLOSE);
   }
+
+  /**
+   * Write the response head and stream the body from the chunked input, the
+   * body is pulled only while the channel is writable.
+   *
+   * @param httpResponse response head, should use chunked transfer encoding
+   * @param content      chunked body
+   */
+  public void writeAndFlush(HttpResponse httpResponse, ChunkedInput<HttpContent> content) {
+    ChannelHandlerContext context = request().channelHandlerContext();
+    context.write(httpResponse);
+    context.writeAndFlush(content).addListener(ChannelFutureListener.CLOSE);
+  }
 }
@@ -23,12 +23,44 @@
  */
 package org.aquiver;
 
-import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.http.*;
+import io.netty.handler.stream.ChunkedInput;
+import org.aquiver.result.ConditionalRequests;
+import org.aquiver.result.ResultUtils;
 
+import java.util.ArrayDeque;
 import java.util.Objects;
+import java.util.Queue;
+import java.util.function.Consumer;
+
+import static org.aquiver.server.Const.PATH_SERVER_RESPONSE_FLUSH_THRESHOLD;
+import static org.aquiver.server.Const.SERVER_RESPONSE_FLUSH_THRESHOLD;
 
 /**
  * Response class based on Netty-based Full Http Response
+ * <p>
+ * Besides holding the result for the result handlers, a response can be
+ * streamed: {@link #writeHead(String)} sends the status and headers with
+ * chunked transfer encoding, every {@link #write(ByteBuf)} becomes one http
+ * chunk and {@link #end()} writes the last chunk. Chunks are flushed once
+ * {@code server.response.flush-threshold} bytes are pending, so many small
+ * writes share one syscall. Producers that can outrun the client should
+ * check {@link #isWritable()} and continue from {@link #onWritable(Runnable)}.
+ * <p>
+ * The streaming methods may be called from any thread, they are run on the
+ * channel's event loop in call order.
+ * <p>
+ * A handler that knows a cheap version of its result can set it as
+ * {@link #eTag(String)} or {@link #lastModified(long)}. Result handlers then
+ * answer matching conditional requests with 304 before serializing, and
+ * {@link #checkNotModified()} answers them before the result is even built.
  *
  * @author WangYi
  * @since 2020/6/27
@@ -39,6 +71,40 @@ public class Response {
   private boolean jsonResponse;
   private String mediaType;
 
+  private final ChannelHandlerContext ctx;
+  private final HttpRequest request;
+  private final int flushThreshold;
+  private final HttpHeaders headers = new DefaultHttpHeaders();
+  private final Queue<Runnable> writableCallbacks = new ArrayDeque<>();
+  private HttpResponseStatus status = HttpResponseStatus.OK;
+  private volatile boolean committed;
+  private boolean ended;
+  private int pendingBytes;
+  private String eTag;
+  private long lastModified = -1;
+  private Consumer<FullHttpResponse> fullResponseWriter;
+
+  public Response() {
+    this(null, null);
+  }
+
+  public Response(ChannelHandlerContext ctx, HttpRequest request) {
+    this.ctx = ctx;
+    this.request = request;
+    this.flushThreshold = Aquiver.of().environment()
+            .getInt(PATH_SERVER_RESPONSE_FLUSH_THRESHOLD, SERVER_RESPONSE_FLUSH_THRESHOLD);
+  }
+
+  /**
+   * Writer of full responses, so a 304 from {@link #checkNotModified()} goes
+   * through the captures of the request context like any other response
+   *
+   * @param fullResponseWriter full response writer
+   */
+  void fullResponseWriter(Consumer<FullHttpResponse> fullResponseWriter) {
+    this.fullResponseWriter = fullResponseWriter;
+  }
+
   public Object getResult() {
     return result;
   }
@@ -63,6 +129,304 @@ public class Response {
     this.mediaType = mediaType;
   }
 
+  /**
+   * Set the status sent by {@link #writeHead(String)}
+   *
+   * @param status http status
+   * @return this
+   */
+  public Response status(HttpResponseStatus status) {
+    this.status = Objects.requireNonNull(status, "status can't be null");
+    return this;
+  }
+
+  /**
+   * Set a header sent by {@link #writeHead(String)}
+   *
+   * @param name  header name
+   * @param value header value
+   * @return this
+   */
+  public Response header(CharSequence name, Object value) {
+    this.headers.set(name, value);
+    return this;
+  }
+
+  /**
+   * Set the entity tag of the result, a plain version key is quoted
+   *
+   * @param eTag version key or entity tag
+   * @return this
+   */
+  public Response eTag(String eTag) {
+    this.eTag = ConditionalRequests.quote(Objects.requireNonNull(eTag, "eTag can't be null"));
+    return this;
+  }
+
+  public String eTag() {
+    return eTag;
+  }
+
+  /**
+   * Set the last modification time of the result
+   *
+   * @param lastModified time in milliseconds
+   * @return this
+   */
+  public Response lastModified(long lastModified) {
+    this.lastModified = lastModified;
+    return this;
+  }
+
+  public long lastModified() {
+    return lastModified;
+  }
+
+  /**
+   * Answer the request with 304 if the client has the version described by
+   * the validators set so far, the route can then return without building
+   * its result.
+   *
+   * @return true if the 304 was written
+   */
+  public boolean checkNotModified() {
+    ChannelHandlerContext context = channelContext();
+    if (committed || (Objects.isNull(eTag) && lastModified < 0)
+            || !ConditionalRequests.isNotModified(request, eTag, lastModified)) {
+      return false;
+    }
+    this.committed = true;
+    this.ended = true;
+    FullHttpResponse response = ConditionalRequests.notModifiedResponse(eTag, lastModified);
+    Consumer<FullHttpResponse> writer = this.fullResponseWriter;
+    if (Objects.nonNull(writer)) {
+      runInEventLoop(() -> writer.accept(response));
+    } else {
+      runInEventLoop(() -> context.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE));
+    }
+    return true;
+  }
+
+  /**
+   * Set the entity tag and answer 304 if the client has that version
+   *
+   * @param eTag version key or entity tag
+   * @return true if the 304 was written
+   */
+  public boolean checkNotModified(String eTag) {
+    return eTag(eTag).checkNotModified();
+  }
+
+  /**
+   * Whether the response head was already written, result handlers leave
+   * committed responses alone.
+   *
+   * @return committed state
+   */
+  public boolean isCommitted() {
+    return committed;
+  }
+
+  /**
+   * Whether the channel accepts more data without queueing it in memory
+   *
+   * @return channel writable state
+   */
+  public boolean isWritable() {
+    return channelContext().channel().isWritable();
+  }
+
+  /**
+   * Switch to streaming mode and send the status and headers
+   *
+   * @param contentType body content type
+   * @return this
+   */
+  public Response writeHead(String contentType) {
+    ChannelHandlerContext context = channelContext();
+    if (committed) {
+      throw new IllegalStateException("Response head was already written");
+    }
+    this.committed = true;
+    this.mediaType = contentType;
+    HttpResponse response = ResultUtils.chunkedResponse(contentType);
+    response.setStatus(status);
+    response.headers().add(headers);
+    runInEventLoop(() -> context.write(response));
+    return this;
+  }
+
+  /**
+   * Write a chunk of text encoded as UTF-8
+   *
+   * @param content chunk content
+   * @return this
+   */
+  public Response write(CharSequence content) {
+    Objects.requireNonNull(content, "content can't be null");
+    return write(ByteBufUtil.writeUtf8(channelContext().alloc(), content));
+  }
+
+  /**
+   * Write a chunk, the response takes over the buffer reference
+   *
+   * @param content chunk content
+   * @return this
+   */
+  public Response write(ByteBuf content) {
+    Objects.requireNonNull(content, "content can't be null");
+    ChannelHandlerContext context = channelContext();
+    requireStreaming(content);
+    runInEventLoop(() -> {
+      if (ended || !context.channel().isActive()) {
+        content.release();
+        return;
+      }
+      int readable = content.readableBytes();
+      if (readable == 0) {
+        content.release();
+        return;
+      }
+      context.write(new DefaultHttpContent(content));
+      pendingBytes += readable;
+      if (pendingBytes >= flushThreshold) {
+        pendingBytes = 0;
+        context.flush();
+      }
+    });
+    return this;
+  }
+
+  /**
+   * Flush the chunks written so far
+   *
+   * @return this
+   */
+  public Response flush() {
+    ChannelHandlerContext context = channelContext();
+    runInEventLoop(() -> {
+      pendingBytes = 0;
+      context.flush();
+    });
+    return this;
+  }
+
+  /**
+   * Run the callback once the channel is writable, immediately if it already
+   * is. The callback runs on the event loop.
+   *
+   * @param callback continuation of the producer
+   */
+  public void onWritable(Runnable callback) {
+    Objects.requireNonNull(callback, "callback can't be null");
+    ChannelHandlerContext context = channelContext();
+    runInEventLoop(() -> {
+      if (ended) {
+        return;
+      }
+      if (context.channel().isWritable()) {
+        callback.run();
+      } else {
+        writableCallbacks.add(callback);
+        // queued chunks only drain once flushed
+        pendingBytes = 0;
+        context.flush();
+      }
+    });
+  }
+
+  /**
+   * Called by the server handler when the channel writability changed
+   */
+  public void writabilityChanged() {
+    if (Objects.isNull(ctx)) {
+      return;
+    }
+    Channel channel = ctx.channel();
+    while (channel.isWritable() && !writableCallbacks.isEmpty()) {
+      writableCallbacks.poll().run();
+    }
+  }
+
+  /**
+   * Write the last chunk and close the response
+   */
+  public void end() {
+    ChannelHandlerContext context = channelContext();
+    if (!committed) {
+      writeHead(Objects.isNull(mediaType)
+              ? HttpHeaderValues.APPLICATION_OCTET_STREAM.toString() : mediaType);
+    }
+    runInEventLoop(() -> {
+      if (ended) {
+        return;
+      }
+      this.ended = true;
+      this.writableCallbacks.clear();
+      context.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT)
+              .addListener(ChannelFutureListener.CLOSE);
+    });
+  }
+
+  /**
+   * Write the rest of the body from a chunked input and close the response,
+   * the input is pulled only while the channel is writable.
+   *
+   * @param content rest of the body
+   * @return future completed when the last chunk was written, failed when
+   *         the response had already ended
+   */
+  public ChannelFuture end(ChunkedInput<ByteBuf> content) {
+    Objects.requireNonNull(content, "content can't be null");
+    ChannelHandlerContext context = channelContext();
+    if (!committed) {
+      throw new IllegalStateException("Response head was not written");
+    }
+    ChannelPromise promise = context.newPromise();
+    runInEventLoop(() -> {
+      if (ended) {
+        closeInput(content);
+        promise.tryFailure(new IllegalStateException("Response already ended"));
+        return;
+      }
+      this.ended = true;
+      this.writableCallbacks.clear();
+      context.writeAndFlush(new HttpChunkedInput(content), promise)
+              .addListener(ChannelFutureListener.CLOSE);
+    });
+    return promise;
+  }
+
+  private static void closeInput(ChunkedInput<ByteBuf> content) {
+    try {
+      content.close();
+    } catch(Exception ignored) {
+      // the input is discarded anyway
+    }
+  }
+
+  private void requireStreaming(ByteBuf content) {
+    if (!committed) {
+      content.release();
+      throw new IllegalStateException("Response head was not written, call writeHead first");
+    }
+  }
+
+  private ChannelHandlerContext channelContext() {
+    if (Objects.isNull(ctx)) {
+      throw new IllegalStateException("Response is not bound to a channel");
+    }
+    return ctx;
+  }
+
+  private void runInEventLoop(Runnable task) {
+    if (ctx.executor().inEventLoop()) {
+      task.run();
+    } else {
+      ctx.executor().execute(task);
+    }
+  }
+
   @Override
   public String toString() {
     return "Response{" +
@@ -25,22 +25,41 @@ package org.aquiver;
 
 import org.apex.ApexContext;
 import org.aquiver.mvc.RequestResult;
+import org.aquiver.mvc.router.RouteInfo;
+import org.aquiver.poll.LongPollResultHandler;
 import org.aquiver.result.JsonResultHandler;
 import org.aquiver.result.ModelAndViewResultHandler;
+import org.aquiver.result.StreamResultHandler;
 import org.aquiver.result.StringResultHandler;
 import org.aquiver.result.VoidResultHandler;
+import org.aquiver.sse.SseResultHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.lang.reflect.Method;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
+ * Selects the {@link ResultHandler} for a route result.
+ * <p>
+ * Handlers only look at the declared return type and the annotations of the
+ * route method, so the handler is bound to each {@link RouteInfo} once at
+ * startup and the request path calls it directly. Results that do not match
+ * their route, such as routes registered after startup, go through a small
+ * fallback cache keyed by method and result type.
+ *
  * @author WangYi
  * @since 2020/8/22
  */
 public final class ResultHandlerResolver {
   private static final Logger log = LoggerFactory.getLogger(ResultHandlerResolver.class);
+
+  /** Result types seen per method outside the bound one, normally one or two. */
+  private static final int MAX_FALLBACK_PER_METHOD = 8;
+
   private final List<ResultHandler> mapping = new ArrayList<>();
+  private final Map<Method, Map<Class<?>, ResultHandler>> fallback = new ConcurrentHashMap<>();
   private final ApexContext context = ApexContext.of();
 
   public ResultHandlerResolver() {
@@ -51,6 +70,9 @@ public final class ResultHandlerResolver {
     this.register(VoidResultHandler.class);
     this.register(StringResultHandler.class);
     this.register(ModelAndViewResultHandler.class);
+    this.register(StreamResultHandler.class);
+    this.register(SseResultHandler.class);
+    this.register(LongPollResultHandler.class);
     this.register(JsonResultHandler.class);
   }
 
@@ -62,10 +84,71 @@ public final class ResultHandlerResolver {
     }
     ResultHandler resultHandler = this.context.addBean(resultHandlerClass);
     this.mapping.add(resultHandler);
+    this.fallback.clear();
+  }
+
+  /**
+   * Resolve and bind the result handler of every route from the declared
+   * return type of its method
+   *
+   * @param routes registered routes
+   */
+  public void bind(Collection<RouteInfo> routes) {
+    Objects.requireNonNull(routes, "routes can't be null");
+
+    for (RouteInfo routeInfo : routes) {
+      Method method = routeInfo.getMethod();
+      ResultHandler resultHandler = scan(new RequestResult(method.getReturnType(), null, method));
+      routeInfo.setResultHandler(resultHandler);
+
+      if (log.isDebugEnabled()) {
+        log.debug("bind ResultHandler: {} -> {}", routeInfo.getUrl(), Objects.isNull(resultHandler)
+                ? null : resultHandler.getClass().getName());
+      }
+    }
+  }
+
+  /**
+   * Find the handler of a route result, the bound one when the result has the
+   * declared type of the route method
+   *
+   * @param routeInfo current route, may be null
+   * @param result    route result
+   * @return matched handler or null
+   */
+  public ResultHandler lookup(RouteInfo routeInfo, RequestResult result) {
+    Method method = result.getMethod();
+    if (Objects.nonNull(routeInfo) && Objects.nonNull(routeInfo.getResultHandler())
+            && routeInfo.getMethod().equals(method)
+            && method.getReturnType() == result.getResultType()) {
+      return routeInfo.getResultHandler();
+    }
+    return lookup(result);
   }
 
   public ResultHandler lookup(RequestResult result) {
-    return mapping.stream().filter(resultHandler -> resultHandler
-            .support(result)).findFirst().orElse(null);
+    Method method = result.getMethod();
+    if (Objects.isNull(method)) {
+      return scan(result);
+    }
+    Map<Class<?>, ResultHandler> types = fallback
+            .computeIfAbsent(method, key -> new ConcurrentHashMap<>());
+    ResultHandler resultHandler = types.get(result.getResultType());
+    if (Objects.isNull(resultHandler)) {
+      resultHandler = scan(result);
+      if (Objects.nonNull(resultHandler) && types.size() < MAX_FALLBACK_PER_METHOD) {
+        types.put(result.getResultType(), resultHandler);
+      }
+    }
+    return resultHandler;
+  }
+
+  private ResultHandler scan(RequestResult result) {
+    for (ResultHandler resultHandler : mapping) {
+      if (resultHandler.support(result)) {
+        return resultHandler;
+      }
+    }
+    return null;
   }
 }
@@ -0,0 +1,469 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.cache;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Bounded concurrent cache with the W-TinyLFU policy.
+ * <p>
+ * New entries enter a small LRU window (1% of the capacity). An entry
+ * leaving the window is only admitted to the main space, a segmented LRU
+ * split into probation and protected, if a {@link FrequencySketch} estimates
+ * it more popular than the entry it would evict. One-off keys so can't flush
+ * the frequently used ones.
+ * <p>
+ * Reads are lock free, recording an access takes the eviction lock only if
+ * it is free and is dropped otherwise. Expired entries are removed when read
+ * or evicted. Loads never hold a lock: {@link #get(Object, Function)} loads
+ * on the calling thread without waiting for other loads of the key, and
+ * {@link #getAsync(Object, Function)} shares one in-flight future per key,
+ * so event loop threads never park on a loader.
+ *
+ * @author WangYi
+ * @since 2020/9/5
+ */
+public final class Cache<K, V> {
+  private static final int WINDOW = 0;
+  private static final int PROBATION = 1;
+  private static final int PROTECTED = 2;
+
+  private final String name;
+  private final long maximumSize;
+  private final long ttlNanos;
+  private final long windowMaximum;
+  private final long protectedMaximum;
+  private final ConcurrentHashMap<K, Node<K, V>> data = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<K, CompletableFuture<V>> loading = new ConcurrentHashMap<>();
+  private final ReentrantLock evictionLock = new ReentrantLock();
+  private final FrequencySketch sketch;
+  private final Deque<K, V> window = new Deque<>();
+  private final Deque<K, V> probation = new Deque<>();
+  private final Deque<K, V> protectedSpace = new Deque<>();
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder loadSuccesses = new LongAdder();
+  private final LongAdder loadFailures = new LongAdder();
+  private final LongAdder loadTime = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  /**
+   * @param name        cache name
+   * @param maximumSize maximum number of entries
+   * @param ttlNanos    time an entry lives after it was written, 0 for no expiry
+   */
+  Cache(String name, long maximumSize, long ttlNanos) {
+    if (maximumSize <= 0) {
+      throw new IllegalArgumentException("maximumSize must be positive");
+    }
+    this.name = name;
+    this.maximumSize = maximumSize;
+    this.ttlNanos = ttlNanos;
+    this.windowMaximum = Math.max(1, maximumSize / 100);
+    this.protectedMaximum = (long) ((maximumSize - windowMaximum) * 0.8);
+    this.sketch = new FrequencySketch(maximumSize);
+  }
+
+  public String name() {
+    return name;
+  }
+
+  /**
+   * Cached value of the key
+   *
+   * @param key key
+   * @return value or null when absent or expired
+   */
+  public V getIfPresent(K key) {
+    Objects.requireNonNull(key, "key can't be null");
+    Node<K, V> node = data.get(key);
+    if (Objects.isNull(node) || isExpired(node, System.nanoTime())) {
+      if (Objects.nonNull(node)) {
+        invalidate(key, node);
+      }
+      misses.increment();
+      recordMiss(key);
+      return null;
+    }
+    hits.increment();
+    recordHit(node);
+    return node.value;
+  }
+
+  /**
+   * Cached value of the key, loaded on the calling thread when absent.
+   * Concurrent misses may load the same key more than once, the last value
+   * written wins. Null values are not cached.
+   *
+   * @param key    key
+   * @param loader computes the value
+   * @return value
+   */
+  public V get(K key, Function<? super K, ? extends V> loader) {
+    V value = getIfPresent(key);
+    if (Objects.nonNull(value)) {
+      return value;
+    }
+    long start = System.nanoTime();
+    try {
+      value = loader.apply(key);
+    } catch(RuntimeException | Error e) {
+      loadFailures.increment();
+      loadTime.add(System.nanoTime() - start);
+      throw e;
+    }
+    loadSuccesses.increment();
+    loadTime.add(System.nanoTime() - start);
+    if (Objects.nonNull(value)) {
+      insert(key, value, false);
+    }
+    return value;
+  }
+
+  /**
+   * Cached value of the key, loaded asynchronously when absent. Concurrent
+   * misses share one load, failed loads are not cached.
+   *
+   * @param key    key
+   * @param loader starts loading the value
+   * @return future of the value
+   */
+  public CompletableFuture<V> getAsync(K key, Function<? super K, ? extends CompletableFuture<? extends V>> loader) {
+    V value = getIfPresent(key);
+    if (Objects.nonNull(value)) {
+      return CompletableFuture.completedFuture(value);
+    }
+    CompletableFuture<V> result = new CompletableFuture<>();
+    CompletableFuture<V> inFlight = loading.putIfAbsent(key, result);
+    if (Objects.nonNull(inFlight)) {
+      return inFlight;
+    }
+    long start = System.nanoTime();
+    CompletableFuture<? extends V> source;
+    try {
+      source = loader.apply(key);
+    } catch(Throwable e) {
+      source = exceptionally(e);
+    }
+    source.whenComplete((loaded, cause) -> {
+      loadTime.add(System.nanoTime() - start);
+      if (Objects.isNull(cause)) {
+        loadSuccesses.increment();
+        if (Objects.nonNull(loaded)) {
+          insert(key, loaded, false);
+        }
+        loading.remove(key, result);
+        result.complete(loaded);
+      } else {
+        loadFailures.increment();
+        loading.remove(key, result);
+        result.completeExceptionally(cause);
+      }
+    });
+    return result;
+  }
+
+  public void put(K key, V value) {
+    insert(key, value, true);
+  }
+
+  /**
+   * @param access count the write as an access of the key, false for a load
+   *               whose miss was counted already
+   */
+  private void insert(K key, V value, boolean access) {
+    Objects.requireNonNull(key, "key can't be null");
+    Objects.requireNonNull(value, "value can't be null");
+    Node<K, V> node = new Node<>(key, value, System.nanoTime());
+    Node<K, V> previous = data.put(key, node);
+    evictionLock.lock();
+    try {
+      if (Objects.nonNull(previous)) {
+        unlink(previous);
+      }
+      if (access) {
+        sketch.increment(key);
+      }
+      if (data.get(key) == node) {
+        node.space = WINDOW;
+        window.addLast(node);
+        evict();
+      }
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  public void invalidate(K key) {
+    Node<K, V> node = data.remove(key);
+    if (Objects.nonNull(node)) {
+      removeFromPolicy(node);
+    }
+  }
+
+  /**
+   * Drop the entries of the keys
+   *
+   * @param keys keys to drop
+   */
+  public void invalidateAll(Iterable<? extends K> keys) {
+    for (K key : keys) {
+      invalidate(key);
+    }
+  }
+
+  /**
+   * Drop every entry
+   */
+  public void invalidateAll() {
+    for (K key : data.keySet()) {
+      invalidate(key);
+    }
+  }
+
+  /**
+   * Approximate number of entries
+   *
+   * @return entry count
+   */
+  public long size() {
+    return data.size();
+  }
+
+  public CacheStats stats() {
+    return new CacheStats(hits.sum(), misses.sum(), loadSuccesses.sum(), loadFailures.sum(),
+            loadTime.sum(), evictions.sum(), data.size());
+  }
+
+  private boolean isExpired(Node<K, V> node, long now) {
+    return ttlNanos > 0 && now - node.writeNanos >= ttlNanos;
+  }
+
+  private void invalidate(K key, Node<K, V> node) {
+    if (data.remove(key, node)) {
+      removeFromPolicy(node);
+    }
+  }
+
+  private void removeFromPolicy(Node<K, V> node) {
+    evictionLock.lock();
+    try {
+      unlink(node);
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  private void recordMiss(K key) {
+    if (evictionLock.tryLock()) {
+      try {
+        sketch.increment(key);
+      } finally {
+        evictionLock.unlock();
+      }
+    }
+  }
+
+  private void recordHit(Node<K, V> node) {
+    if (evictionLock.tryLock()) {
+      try {
+        sketch.increment(node.key);
+        onAccess(node);
+      } finally {
+        evictionLock.unlock();
+      }
+    }
+  }
+
+  /** Move the accessed node to the most recently used end, promoting it from probation. */
+  private void onAccess(Node<K, V> node) {
+    switch (node.space) {
+      case WINDOW:
+        window.moveToLast(node);
+        break;
+      case PROBATION:
+        probation.remove(node);
+        node.space = PROTECTED;
+        protectedSpace.addLast(node);
+        if (protectedSpace.size > protectedMaximum) {
+          Node<K, V> demoted = protectedSpace.pollFirst();
+          demoted.space = PROBATION;
+          probation.addLast(demoted);
+        }
+        break;
+      case PROTECTED:
+        protectedSpace.moveToLast(node);
+        break;
+      default:
+        // removed meanwhile
+    }
+  }
+
+  /**
+   * Move the window's least recently used entry to the main space when the
+   * window is full, then evict whichever of it and the main space's victim
+   * the sketch estimates less popular.
+   */
+  private void evict() {
+    while (window.size > windowMaximum) {
+      Node<K, V> candidate = window.pollFirst();
+      candidate.space = PROBATION;
+      probation.addLast(candidate);
+    }
+    while (window.size + probation.size + protectedSpace.size > maximumSize) {
+      Node<K, V> candidate = probation.peekLast();
+      Node<K, V> victim = probation.peekFirst();
+      if (Objects.isNull(victim)) {
+        victim = protectedSpace.peekFirst();
+      }
+      if (Objects.isNull(victim)) {
+        victim = window.peekFirst();
+      }
+      if (Objects.nonNull(candidate) && candidate != victim
+              && sketch.frequency(candidate.key) <= sketch.frequency(victim.key)) {
+        victim = candidate;
+      }
+      unlink(victim);
+      if (data.remove(victim.key, victim)) {
+        evictions.increment();
+      }
+    }
+  }
+
+  private void unlink(Node<K, V> node) {
+    switch (node.space) {
+      case WINDOW:
+        window.remove(node);
+        break;
+      case PROBATION:
+        probation.remove(node);
+        break;
+      case PROTECTED:
+        protectedSpace.remove(node);
+        break;
+      default:
+        return;
+    }
+    node.space = -1;
+  }
+
+  private static <V> CompletableFuture<V> exceptionally(Throwable cause) {
+    CompletableFuture<V> future = new CompletableFuture<>();
+    future.completeExceptionally(cause);
+    return future;
+  }
+
+  @Override
+  public String toString() {
+    return "Cache{" +
+            "name='" + name + '\'' +
+            ", maximumSize=" + maximumSize +
+            ", size=" + size() +
+            '}';
+  }
+
+  /**
+   * Cached entry, linked in the deque of its space
+   */
+  private static final class Node<K, V> {
+    private final K key;
+    private final V value;
+    private final long writeNanos;
+    private Node<K, V> previous;
+    private Node<K, V> next;
+    private int space = -1;
+
+    Node(K key, V value, long writeNanos) {
+      this.key = key;
+      this.value = value;
+      this.writeNanos = writeNanos;
+    }
+  }
+
+  /**
+   * Intrusive doubly linked list in access order, least recently used first
+   */
+  private static final class Deque<K, V> {
+    private Node<K, V> first;
+    private Node<K, V> last;
+    private long size;
+
+    void addLast(Node<K, V> node) {
+      node.previous = last;
+      node.next = null;
+      if (Objects.isNull(last)) {
+        first = node;
+      } else {
+        last.next = node;
+      }
+      last = node;
+      size++;
+    }
+
+    void remove(Node<K, V> node) {
+      if (Objects.isNull(node.previous)) {
+        first = node.next;
+      } else {
+        node.previous.next = node.next;
+      }
+      if (Objects.isNull(node.next)) {
+        last = node.previous;
+      } else {
+        node.next.previous = node.previous;
+      }
+      node.previous = null;
+      node.next = null;
+      size--;
+    }
+
+    void moveToLast(Node<K, V> node) {
+      if (node != last) {
+        remove(node);
+        addLast(node);
+      }
+    }
+
+    Node<K, V> peekFirst() {
+      return first;
+    }
+
+    Node<K, V> peekLast() {
+      return last;
+    }
+
+    Node<K, V> pollFirst() {
+      Node<K, V> node = first;
+      if (Objects.nonNull(node)) {
+        remove(node);
+      }
+      return node;
+    }
+  }
+}
@@ -0,0 +1,186 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Registry of the named caches, and applies {@link Cacheable} to the beans
+ * of the container.
+ * <pre>{@code
+ *  Cache<Long, User> users = cacheManager.cache("users", 10_000, 5, TimeUnit.MINUTES);
+ *  User user = users.get(id, userRepository::findById);
+ * }</pre>
+ *
+ * @author WangYi
+ * @since 2020/9/5
+ */
+public final class CacheManager {
+  private static final Logger log = LoggerFactory.getLogger(CacheManager.class);
+
+  private final Map<String, Cache<?, ?>> caches = new ConcurrentHashMap<>();
+
+  /**
+   * Get the named cache, created with the given bounds on first use
+   *
+   * @param name        cache name
+   * @param maximumSize maximum number of entries
+   * @param ttl         time an entry lives after it was written, 0 for no expiry
+   * @param unit        time unit of ttl
+   * @return cache
+   */
+  @SuppressWarnings("unchecked")
+  public <K, V> Cache<K, V> cache(String name, long maximumSize, long ttl, TimeUnit unit) {
+    Objects.requireNonNull(name, "name can't be null");
+    Objects.requireNonNull(unit, "unit can't be null");
+    return (Cache<K, V>) caches.computeIfAbsent(name, key -> new Cache<>(key, maximumSize, unit.toNanos(ttl)));
+  }
+
+  /**
+   * Get an existing cache
+   *
+   * @param name cache name
+   * @return cache or null
+   */
+  @SuppressWarnings("unchecked")
+  public <K, V> Cache<K, V> getCache(String name) {
+    return (Cache<K, V>) caches.get(name);
+  }
+
+  public Set<String> cacheNames() {
+    return Collections.unmodifiableSet(caches.keySet());
+  }
+
+  /**
+   * Stats of every cache by name
+   *
+   * @return cache stats
+   */
+  public Map<String, CacheStats> stats() {
+    Map<String, CacheStats> stats = new TreeMap<>();
+    caches.forEach((name, cache) -> stats.put(name, cache.stats()));
+    return stats;
+  }
+
+  /**
+   * Drop every entry of the named cache
+   *
+   * @param name cache name
+   */
+  public void invalidateAll(String name) {
+    Cache<?, ?> cache = caches.get(name);
+    if (Objects.nonNull(cache)) {
+      cache.invalidateAll();
+    }
+  }
+
+  /**
+   * Drop every entry of every cache
+   */
+  public void invalidateAll() {
+    caches.values().forEach(Cache::invalidateAll);
+  }
+
+  /**
+   * Wrap the beans that declare {@link Cacheable} methods in a caching proxy
+   * and point the injected fields of all beans at it. The container offers
+   * no interception hook, so only calls through an interface typed field
+   * are cached.
+   *
+   * @param instances container instances
+   */
+  public void weave(Map<String, Object> instances) {
+    Map<Object, Object> proxies = new IdentityHashMap<>();
+    for (Object bean : instances.values()) {
+      if (Objects.isNull(bean) || !hasCacheable(bean.getClass())) {
+        continue;
+      }
+      Class<?>[] interfaces = interfaces(bean.getClass());
+      if (interfaces.length == 0) {
+        log.warn("{} declares @Cacheable methods but implements no interface, they are not cached",
+                bean.getClass().getName());
+        continue;
+      }
+      Object proxy = Proxy.newProxyInstance(bean.getClass().getClassLoader(), interfaces,
+              new CacheableInvocationHandler(bean, interfaces, this));
+      proxies.put(bean, proxy);
+      if (log.isDebugEnabled()) {
+        log.debug("register Cacheable: {} -> {}", bean.getClass().getName(), Arrays.toString(interfaces));
+      }
+    }
+    if (proxies.isEmpty()) {
+      return;
+    }
+    for (Object bean : instances.values()) {
+      if (Objects.nonNull(bean)) {
+        rewire(bean, proxies);
+      }
+    }
+  }
+
+  private void rewire(Object bean, Map<Object, Object> proxies) {
+    for (Class<?> type = bean.getClass(); type != null && type != Object.class; type = type.getSuperclass()) {
+      for (Field field : type.getDeclaredFields()) {
+        if (Modifier.isStatic(field.getModifiers()) || !field.getType().isInterface()) {
+          continue;
+        }
+        try {
+          field.setAccessible(true);
+          Object proxy = proxies.get(field.get(bean));
+          if (Objects.nonNull(proxy) && field.getType().isInstance(proxy)) {
+            field.set(bean, proxy);
+          }
+        } catch(IllegalAccessException | RuntimeException e) {
+          log.warn("can't apply @Cacheable to field {}.{}", type.getName(), field.getName(), e);
+        }
+      }
+    }
+  }
+
+  private static boolean hasCacheable(Class<?> type) {
+    for (Method method : type.getMethods()) {
+      if (method.isAnnotationPresent(Cacheable.class)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static Class<?>[] interfaces(Class<?> type) {
+    Set<Class<?>> interfaces = new LinkedHashSet<>();
+    for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+      interfaces.addAll(Arrays.asList(current.getInterfaces()));
+    }
+    return interfaces.toArray(new Class<?>[0]);
+  }
+}
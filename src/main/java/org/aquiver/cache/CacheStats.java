@@ -0,0 +1,109 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.cache;
+
+/**
+ * Snapshot of the counters of one cache
+ *
+ * @author WangYi
+ * @since 2020/9/5
+ */
+public final class CacheStats {
+  private final long hitCount;
+  private final long missCount;
+  private final long loadSuccessCount;
+  private final long loadFailureCount;
+  private final long totalLoadTime;
+  private final long evictionCount;
+  private final long size;
+
+  CacheStats(long hitCount, long missCount, long loadSuccessCount, long loadFailureCount,
+             long totalLoadTime, long evictionCount, long size) {
+    this.hitCount = hitCount;
+    this.missCount = missCount;
+    this.loadSuccessCount = loadSuccessCount;
+    this.loadFailureCount = loadFailureCount;
+    this.totalLoadTime = totalLoadTime;
+    this.evictionCount = evictionCount;
+    this.size = size;
+  }
+
+  public long hitCount() {
+    return hitCount;
+  }
+
+  public long missCount() {
+    return missCount;
+  }
+
+  public long loadSuccessCount() {
+    return loadSuccessCount;
+  }
+
+  public long loadFailureCount() {
+    return loadFailureCount;
+  }
+
+  /**
+   * Time spent loading in nanoseconds
+   */
+  public long totalLoadTime() {
+    return totalLoadTime;
+  }
+
+  public long evictionCount() {
+    return evictionCount;
+  }
+
+  public long size() {
+    return size;
+  }
+
+  public double hitRate() {
+    long requests = hitCount + missCount;
+    return requests == 0 ? 1.0 : (double) hitCount / requests;
+  }
+
+  /**
+   * Average time of a load in nanoseconds
+   */
+  public double averageLoadPenalty() {
+    long loads = loadSuccessCount + loadFailureCount;
+    return loads == 0 ? 0.0 : (double) totalLoadTime / loads;
+  }
+
+  @Override
+  public String toString() {
+    return "CacheStats{" +
+            "hitCount=" + hitCount +
+            ", missCount=" + missCount +
+            ", loadSuccessCount=" + loadSuccessCount +
+            ", loadFailureCount=" + loadFailureCount +
+            ", totalLoadTime=" + totalLoadTime +
+            ", evictionCount=" + evictionCount +
+            ", size=" + size +
+            ", hitRate=" + hitRate() +
+            '}';
+  }
+}
@@ -0,0 +1,60 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.cache;
+
+import java.lang.annotation.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache the results of a bean method by its arguments.
+ * <p>
+ * Applied to beans that are injected through an interface: the injected
+ * fields are replaced by a proxy when the server starts. Methods returning
+ * {@link java.util.concurrent.CompletableFuture} are loaded asynchronously
+ * and concurrent calls with the same arguments share one load.
+ *
+ * @author WangYi
+ * @since 2020/9/5
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface Cacheable {
+  /**
+   * Cache name, defaults to the declaring class, method name and parameter types
+   */
+  String value() default "";
+
+  /**
+   * Time an entry lives after it was written, 0 for no expiry
+   */
+  long ttl() default 0;
+
+  TimeUnit unit() default TimeUnit.SECONDS;
+
+  /**
+   * Maximum number of entries
+   */
+  long maximumSize() default 10_000;
+}
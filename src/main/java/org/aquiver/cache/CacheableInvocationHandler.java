@@ -0,0 +1,150 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.cache;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Proxy handler that answers {@link Cacheable} methods from their cache and
+ * forwards every other call to the bean.
+ *
+ * @author WangYi
+ * @since 2020/9/5
+ */
+final class CacheableInvocationHandler implements InvocationHandler {
+  private static final Object NO_ARGUMENTS = new Object();
+
+  private final Object target;
+  private final Map<Method, Cache<Object, Object>> caches = new HashMap<>();
+
+  CacheableInvocationHandler(Object target, Class<?>[] interfaces, CacheManager cacheManager) {
+    this.target = target;
+    Class<?> targetClass = target.getClass();
+    for (Class<?> type : interfaces) {
+      for (Method method : type.getMethods()) {
+        Method implementation = implementation(targetClass, method);
+        Cacheable cacheable = Objects.isNull(implementation) ? null : implementation.getAnnotation(Cacheable.class);
+        if (Objects.isNull(cacheable)) {
+          cacheable = method.getAnnotation(Cacheable.class);
+        }
+        if (Objects.nonNull(cacheable)) {
+          String name = cacheable.value().isEmpty() ? defaultName(targetClass, method) : cacheable.value();
+          caches.put(method, cacheManager.cache(name, cacheable.maximumSize(), cacheable.ttl(), cacheable.unit()));
+        }
+      }
+    }
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+    Cache<Object, Object> cache = caches.get(method);
+    if (Objects.isNull(cache)) {
+      return invokeTarget(method, args);
+    }
+    Object key = key(args);
+    if (CompletionStage.class.isAssignableFrom(method.getReturnType())) {
+      CompletableFuture<Object> future = cache.getAsync(key, k -> {
+        try {
+          CompletionStage<Object> stage = (CompletionStage<Object>) invokeTarget(method, args);
+          return Objects.isNull(stage) ? CompletableFuture.completedFuture(null) : stage.toCompletableFuture();
+        } catch(Throwable e) {
+          CompletableFuture<Object> failed = new CompletableFuture<>();
+          failed.completeExceptionally(e);
+          return failed;
+        }
+      });
+      return future;
+    }
+    try {
+      return cache.get(key, k -> {
+        try {
+          return invokeTarget(method, args);
+        } catch(Throwable e) {
+          throw new LoadException(e);
+        }
+      });
+    } catch(LoadException e) {
+      throw e.getCause();
+    }
+  }
+
+  private Object invokeTarget(Method method, Object[] args) throws Throwable {
+    try {
+      return method.invoke(target, args);
+    } catch(InvocationTargetException e) {
+      throw e.getTargetException();
+    }
+  }
+
+  private static Object key(Object[] args) {
+    if (Objects.isNull(args) || args.length == 0) {
+      return NO_ARGUMENTS;
+    }
+    if (args.length == 1 && Objects.nonNull(args[0]) && !args[0].getClass().isArray()) {
+      return args[0];
+    }
+    List<Object> key = new ArrayList<>(args.length);
+    for (Object arg : args) {
+      key.add(arg instanceof Object[] ? Arrays.asList((Object[]) arg) : arg);
+    }
+    return key;
+  }
+
+  /**
+   * Class name, method name and parameter types, so overloads and classes
+   * with the same simple name get caches of their own
+   */
+  private static String defaultName(Class<?> targetClass, Method method) {
+    StringJoiner name = new StringJoiner(",", targetClass.getName() + "#" + method.getName() + "(", ")");
+    for (Class<?> parameterType : method.getParameterTypes()) {
+      name.add(parameterType.getTypeName());
+    }
+    return name.toString();
+  }
+
+  private static Method implementation(Class<?> targetClass, Method method) {
+    try {
+      return targetClass.getMethod(method.getName(), method.getParameterTypes());
+    } catch(NoSuchMethodException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Carries a checked exception of the bean method through the loader
+   */
+  private static final class LoadException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    LoadException(Throwable cause) {
+      super(null, cause, false, false);
+    }
+  }
+}
@@ -0,0 +1,59 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.mvc.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * Override the response compression settings of a route or of every route
+ * of a controller, an annotation on the method wins over one on the class.
+ * <p>
+ * Responses of an annotated route are compressed whatever their content
+ * type, the minimum size, existing content encodings and event streams are
+ * still honoured. Compression also has to be enabled with
+ * {@code server.autoCompression}.
+ *
+ * @author WangYi
+ * @since 2020/9/5
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface Compress {
+  /**
+   * False to never compress the responses of the route
+   */
+  boolean value() default true;
+
+  /**
+   * Deflate level between 1 and 9, -1 for {@code server.compression.level}
+   */
+  int level() default -1;
+
+  /**
+   * Smallest body in bytes worth compressing, -1 for
+   * {@code server.compression.min-size}
+   */
+  int minSize() default -1;
+}
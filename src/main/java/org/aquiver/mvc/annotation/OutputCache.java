@@ -0,0 +1,91 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.mvc.annotation;
+
+import java.lang.annotation.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache the encoded response of a GET or HEAD route. Hits are answered
+ * before the interceptor chain runs, without binding arguments or invoking
+ * the route.
+ * <p>
+ * Entries are keyed by method, path, the selected query parameters and the
+ * {@link #vary()} request headers. Only 200 responses written in full are
+ * stored.
+ * <p>
+ * With {@link #coalesce()} concurrent misses for the same key wait for the
+ * single request that runs the route instead of all running it, a
+ * {@code ttl} of 0 uses the coalescing alone without keeping the response.
+ *
+ * @author WangYi
+ * @since 2020/9/5
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface OutputCache {
+  /** All query parameters are part of the key. */
+  String ALL_PARAMS = "*";
+
+  /**
+   * Time an entry is fresh
+   */
+  long ttl() default 60;
+
+  /**
+   * Time after expiry during which the stale entry is still served while
+   * one request refreshes it
+   */
+  long staleWhileRevalidate() default 0;
+
+  TimeUnit unit() default TimeUnit.SECONDS;
+
+  /**
+   * Query parameters that are part of the key, {@link #ALL_PARAMS} for the
+   * whole query string, empty to ignore it
+   */
+  String[] queryParams() default ALL_PARAMS;
+
+  /**
+   * Request headers whose values are part of the key
+   */
+  String[] vary() default "Accept";
+
+  /**
+   * Maximum number of entries kept for the route
+   */
+  int maxEntries() default 1024;
+
+  /**
+   * Let concurrent misses of the same key share one execution of the route
+   */
+  boolean coalesce() default false;
+
+  /**
+   * Time a coalesced request waits for the shared execution, after it the
+   * waiting requests run the route themselves
+   */
+  long coalesceTimeoutMillis() default 5000;
+}
@@ -0,0 +1,116 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.mvc.argument;
+
+import org.apex.ApexContext;
+import org.aquiver.RequestContext;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.util.Objects;
+
+/**
+ * The argument getters of a method, looked up once. Resolving the
+ * arguments for a call then only runs the getters against the given
+ * context, unlike {@link MethodArgumentGetter} which looks them up again
+ * on every call.
+ *
+ * @author WangYi
+ * @since 2020/9/5
+ */
+public final class ArgumentPlan {
+  private final Method method;
+  private final Binding[] bindings;
+
+  private ArgumentPlan(Method method, Binding[] bindings) {
+    this.method = method;
+    this.bindings = bindings;
+  }
+
+  /**
+   * Look up the getter of every parameter of a method
+   *
+   * @param method method to plan
+   * @return argument plan
+   * @throws IllegalArgumentException when a parameter has no getter
+   */
+  public static ArgumentPlan of(Method method) {
+    Objects.requireNonNull(method, "method can't be null");
+    final ApexContext context = ApexContext.of();
+    final AnnotationArgumentGetterResolver annotationResolver = context.getBean(AnnotationArgumentGetterResolver.class);
+    final ArgumentGetterResolver argumentGetterResolver = context.getBean(ArgumentGetterResolver.class);
+
+    final Parameter[] parameters = method.getParameters();
+    final Binding[] bindings = new Binding[parameters.length];
+    for (int i = 0; i < parameters.length; i++) {
+      bindings[i] = bind(parameters[i], annotationResolver, argumentGetterResolver);
+      if (Objects.isNull(bindings[i])) {
+        throw new IllegalArgumentException("No argument getter for parameter "
+                + parameters[i].getName() + " of " + method);
+      }
+    }
+    return new ArgumentPlan(method, bindings);
+  }
+
+  private static Binding bind(Parameter parameter, AnnotationArgumentGetterResolver annotationResolver,
+                              ArgumentGetterResolver argumentGetterResolver) {
+    for (Annotation annotation : parameter.getAnnotations()) {
+      AnnotationArgumentGetter getter = annotationResolver.lookup(annotation.annotationType());
+      if (Objects.nonNull(getter)) {
+        return context -> getter.get(new ArgumentContext(parameter, annotation, context));
+      }
+    }
+    ArgumentGetter<?> getter = argumentGetterResolver.lookup(parameter.getType());
+    return Objects.isNull(getter) ? null : getter::get;
+  }
+
+  /**
+   * Resolve the arguments of one call
+   *
+   * @param context context of the call
+   * @return arguments in parameter order
+   * @throws Exception thrown by a getter
+   */
+  public Object[] resolve(RequestContext context) throws Exception {
+    final Object[] arguments = new Object[bindings.length];
+    for (int i = 0; i < bindings.length; i++) {
+      arguments[i] = bindings[i].get(context);
+    }
+    return arguments;
+  }
+
+  public Method getMethod() {
+    return method;
+  }
+
+  public int size() {
+    return bindings.length;
+  }
+
+  @FunctionalInterface
+  private interface Binding {
+    Object get(RequestContext context) throws Exception;
+  }
+}
@@ -25,19 +25,39 @@ package org.aquiver.mvc.argument;
 
 import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONObject;
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import org.apex.ApexContext;
+import org.aquiver.Request;
 import org.aquiver.RequestContext;
+import org.aquiver.mvc.codec.MessageCodec;
+import org.aquiver.mvc.codec.MessageCodecResolver;
 
 import java.util.Map;
+import java.util.Objects;
 
 /**
  * @author WangYi
  * @since 2020/8/26
  */
 public final class BodyArgumentGetter implements AnnotationArgumentGetter {
+  private final MessageCodecResolver codecResolver;
+
+  public BodyArgumentGetter() {
+    this.codecResolver = ApexContext.of().getBean(MessageCodecResolver.class);
+  }
+
   @Override
   public Object get(ArgumentContext context) throws Exception {
     RequestContext requestContext = context.getContext();
-    Map<String, Object> jsonData = requestContext.request().formData();
+    Request request = requestContext.request();
+    MessageCodec codec = codecResolver.lookup(request.headers().get(HttpHeaderNames.CONTENT_TYPE));
+    ByteBuf content = request.httpRequest().content();
+    if (Objects.nonNull(codec) && content.isReadable()) {
+      return codec.decode(content.duplicate(), context.getParameter().getParameterizedType());
+    }
+
+    Map<String, Object> jsonData = request.formData();
     String jsonString = JSON.toJSONString(jsonData);
     if (jsonData.isEmpty() || !JSONObject.isValid(jsonString)) {
       return null;
@@ -35,6 +35,7 @@ public final class MultipartFileArgumentGetter implements TypeArgumentGetter<Mul
   public MultipartFile get(RequestContext context) {
     final MultipartFile multipartFile = new MultipartFile();
     multipartFile.channelContext(context.request().channelHandlerContext());
+    multipartFile.request(context.request().httpRequest());
     return multipartFile;
   }
 
@@ -0,0 +1,116 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.mvc.cache;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.DateFormatter;
+import io.netty.handler.codec.http.*;
+
+import java.util.Date;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Encoded response held by the output cache, the body lives in a pooled
+ * direct buffer that is shared by every hit through retained duplicates.
+ *
+ * @author WangYi
+ * @since 2020/9/5
+ */
+final class CachedResponse {
+  private final HttpResponseStatus status;
+  private final HttpHeaders headers;
+  private final ByteBuf content;
+  private final long storedNanos;
+  private final long freshUntilNanos;
+  private final long staleUntilNanos;
+  private final String eTag;
+  private final long lastModified;
+  private final AtomicLong refreshStartedNanos = new AtomicLong();
+
+  CachedResponse(HttpResponseStatus status, HttpHeaders headers, ByteBuf content,
+                 long storedNanos, long ttlNanos, long staleNanos) {
+    this.status = status;
+    this.headers = headers;
+    this.content = content;
+    this.storedNanos = storedNanos;
+    this.freshUntilNanos = storedNanos + ttlNanos;
+    this.staleUntilNanos = freshUntilNanos + staleNanos;
+    this.eTag = headers.get(HttpHeaderNames.ETAG);
+    Date date = DateFormatter.parseHttpDate(headers.get(HttpHeaderNames.LAST_MODIFIED, ""));
+    this.lastModified = Objects.isNull(date) ? -1 : date.getTime();
+  }
+
+  boolean isFresh(long nowNanos) {
+    return nowNanos - freshUntilNanos < 0;
+  }
+
+  boolean isUsable(long nowNanos) {
+    return nowNanos - staleUntilNanos < 0;
+  }
+
+  /**
+   * Let one request refresh a stale entry, a refresh that did not store a
+   * new entry within the timeout can be claimed again.
+   */
+  boolean claimRefresh(long nowNanos, long refreshTimeoutNanos) {
+    long started = refreshStartedNanos.get();
+    if (started != 0 && nowNanos - started < refreshTimeoutNanos) {
+      return false;
+    }
+    return refreshStartedNanos.compareAndSet(started, nowNanos);
+  }
+
+  void releaseRefresh() {
+    refreshStartedNanos.set(0);
+  }
+
+  /**
+   * Build a response sharing the cached body, must be called while the
+   * entry can't be released concurrently.
+   */
+  FullHttpResponse toResponse(long nowNanos) {
+    HttpHeaders responseHeaders = headers.copy();
+    responseHeaders.set(HttpHeaderNames.AGE, TimeUnit.NANOSECONDS.toSeconds(nowNanos - storedNanos));
+    return new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, status,
+            content.retainedDuplicate(), responseHeaders, EmptyHttpHeaders.INSTANCE);
+  }
+
+  String eTag() {
+    return eTag;
+  }
+
+  long lastModified() {
+    return lastModified;
+  }
+
+  int size() {
+    return content.readableBytes();
+  }
+
+  void release() {
+    content.release();
+  }
+}
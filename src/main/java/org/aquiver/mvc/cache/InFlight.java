@@ -0,0 +1,101 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.mvc.cache;
+
+import io.netty.util.Timeout;
+import org.aquiver.RequestContext;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * One execution of a coalescing route and the requests waiting for it
+ *
+ * @author WangYi
+ * @since 2020/9/5
+ */
+final class InFlight {
+  private List<Waiter> waiters = new ArrayList<>();
+  private Timeout timeout;
+
+  synchronized void timeout(Timeout timeout) {
+    this.timeout = timeout;
+  }
+
+  /**
+   * Wait for the execution
+   *
+   * @param ctx   waiting request
+   * @param route runs the route for the request if it has to answer itself
+   * @return false if it already finished, the request must run itself
+   */
+  synchronized boolean join(RequestContext ctx, Consumer<RequestContext> route) {
+    if (Objects.isNull(waiters)) {
+      return false;
+    }
+    waiters.add(new Waiter(ctx, route));
+    return true;
+  }
+
+  /**
+   * Finish the execution once, later calls get no waiters
+   *
+   * @return requests to answer
+   */
+  synchronized List<Waiter> finish() {
+    List<Waiter> current = this.waiters;
+    if (Objects.isNull(current)) {
+      return Collections.emptyList();
+    }
+    this.waiters = null;
+    if (Objects.nonNull(timeout)) {
+      timeout.cancel();
+    }
+    return current;
+  }
+
+  static final class Waiter {
+    private final RequestContext ctx;
+    private final Consumer<RequestContext> route;
+
+    Waiter(RequestContext ctx, Consumer<RequestContext> route) {
+      this.ctx = ctx;
+      this.route = route;
+    }
+
+    RequestContext context() {
+      return ctx;
+    }
+
+    /**
+     * Run the route for the request on its own event loop
+     */
+    void run() {
+      ctx.request().channelHandlerContext().executor().execute(() -> route.accept(ctx));
+    }
+  }
+}
@@ -0,0 +1,387 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.mvc.cache;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import org.aquiver.Aquiver;
+import org.aquiver.Request;
+import org.aquiver.RequestContext;
+import org.aquiver.mvc.annotation.OutputCache;
+import org.aquiver.mvc.router.RouteInfo;
+import org.aquiver.result.ConditionalRequests;
+import org.aquiver.result.ResultUtils;
+import org.aquiver.server.TimerKit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static org.aquiver.server.Const.PATH_SERVER_OUTPUT_CACHE_MAX_BYTES;
+import static org.aquiver.server.Const.SERVER_OUTPUT_CACHE_MAX_BYTES;
+
+/**
+ * Output cache of routes annotated with {@link OutputCache}. It sits in
+ * front of the interceptor chain: a hit is written straight from the cached
+ * bytes, a miss runs the route and stores the response it writes.
+ * <p>
+ * Bodies are kept in pooled direct buffers, bounded by the route's
+ * {@link OutputCache#maxEntries()} and by {@code server.output-cache.max-bytes}
+ * over all routes, least recently used entries are evicted first. Within the
+ * stale-while-revalidate window one request refreshes an expired entry while
+ * the others keep getting the stale copy.
+ * <p>
+ * Routes that coalesce let one unconditional request run on a miss,
+ * identical requests arriving meanwhile are parked. They get a copy of its
+ * response if it is a full 200, checked against their own validators, or
+ * of a 500 if it fails. Otherwise, such as a streamed answer or none in
+ * time, they are let go to run the route themselves.
+ *
+ * @author WangYi
+ * @since 2020/9/5
+ */
+public final class ResponseCache {
+  private static final Logger log = LoggerFactory.getLogger(ResponseCache.class);
+  private static final long REFRESH_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+  private final Map<Method, Optional<RouteCache>> routes = new ConcurrentHashMap<>();
+  private final AtomicLong bytes = new AtomicLong();
+  private final long maxBytes;
+
+  public ResponseCache() {
+    this.maxBytes = Aquiver.of().environment()
+            .getLong(PATH_SERVER_OUTPUT_CACHE_MAX_BYTES, SERVER_OUTPUT_CACHE_MAX_BYTES);
+  }
+
+  /**
+   * Answer the request from the cache, or arrange for its response to be
+   * stored when the route is cached but the entry is missing or expired.
+   *
+   * @param ctx   request context with the route resolved
+   * @param route runs the route for a parked request that has to answer
+   *              itself after all
+   * @return true if the request was answered or parked
+   */
+  public boolean serve(RequestContext ctx, Consumer<RequestContext> route) {
+    RouteCache cache = routeCache(ctx.route());
+    if (Objects.isNull(cache)) {
+      return false;
+    }
+    Request request = ctx.request();
+    HttpMethod method = request.httpMethod();
+    if (!HttpMethod.GET.equals(method) && !HttpMethod.HEAD.equals(method)) {
+      return false;
+    }
+
+    String key = cache.key(request);
+    long now = System.nanoTime();
+    CachedResponse entry;
+    FullHttpResponse hit = null;
+    synchronized (cache) {
+      entry = cache.get(key);
+      if (Objects.nonNull(entry)) {
+        if (entry.isFresh(now)) {
+          cache.stats().hit();
+        } else if (entry.isUsable(now) && !entry.claimRefresh(now, REFRESH_TIMEOUT_NANOS)) {
+          cache.stats().staleHit();
+        } else {
+          if (!entry.isUsable(now)) {
+            remove(cache, key, entry);
+          }
+          entry = null;
+        }
+      }
+      if (Objects.nonNull(entry) && !ConditionalRequests.isNotModified(
+              request.httpRequest(), entry.eTag(), entry.lastModified())) {
+        hit = entry.toResponse(now);
+      }
+    }
+
+    if (Objects.nonNull(entry)) {
+      ctx.writeAndFlush(Objects.nonNull(hit) ? hit
+              : ConditionalRequests.notModifiedResponse(entry.eTag(), entry.lastModified()));
+      return true;
+    }
+    if (!cache.coalesce()) {
+      cache.stats().miss();
+      ctx.captureResponse(response -> store(cache, key, response));
+      return false;
+    }
+    return coalesce(cache, key, ctx, route);
+  }
+
+  /**
+   * Counters of every cached route by url
+   *
+   * @return route stats
+   */
+  public Map<String, RouteCacheStats> stats() {
+    Map<String, RouteCacheStats> stats = new LinkedHashMap<>();
+    for (Optional<RouteCache> cache : routes.values()) {
+      cache.ifPresent(routeCache -> stats.put(routeCache.url(), routeCache.stats()));
+    }
+    return stats;
+  }
+
+  /**
+   * Drop every entry of the route with the url
+   *
+   * @param url route url
+   */
+  public void invalidate(String url) {
+    for (Optional<RouteCache> cache : routes.values()) {
+      cache.filter(routeCache -> routeCache.url().equals(url)).ifPresent(this::clear);
+    }
+  }
+
+  /**
+   * Drop every entry
+   */
+  public void invalidateAll() {
+    for (Optional<RouteCache> cache : routes.values()) {
+      cache.ifPresent(this::clear);
+    }
+  }
+
+  /**
+   * Total size of the cached bodies in bytes
+   *
+   * @return cached bytes
+   */
+  public long bytes() {
+    return bytes.get();
+  }
+
+  private RouteCache routeCache(RouteInfo routeInfo) {
+    if (Objects.isNull(routeInfo)) {
+      return null;
+    }
+    return routes.computeIfAbsent(routeInfo.getMethod(), method -> {
+      OutputCache policy = method.getAnnotation(OutputCache.class);
+      return Objects.isNull(policy) ? Optional.empty()
+              : Optional.of(new RouteCache(routeInfo.getUrl(), policy));
+    }).orElse(null);
+  }
+
+  /**
+   * A conditional request only waits for an execution, it never leads one:
+   * its answer may be a 304 the others can't use
+   */
+  private boolean coalesce(RouteCache cache, String key, RequestContext ctx, Consumer<RequestContext> route) {
+    final boolean conditional = isConditional(ctx.request().httpRequest());
+    InFlight flight = new InFlight();
+    InFlight current = conditional ? cache.inFlight().get(key) : cache.inFlight().putIfAbsent(key, flight);
+    if (Objects.nonNull(current) && current.join(ctx, route)) {
+      cache.stats().collapse();
+      return true;
+    }
+    cache.stats().miss();
+    if (Objects.nonNull(current) || conditional) {
+      // the execution finished meanwhile, run without coalescing
+      ctx.captureResponse(response -> store(cache, key, response));
+      return false;
+    }
+    flight.timeout(TimerKit.newTimeout(timeout -> release(cache, key, flight),
+            cache.coalesceTimeoutMillis(), TimeUnit.MILLISECONDS));
+    ctx.captureFailure(cause -> answer(cache, key, flight,
+            () -> statusResponse(HttpResponseStatus.INTERNAL_SERVER_ERROR)));
+    ctx.captureResponse(response -> {
+      store(cache, key, response);
+      if (HttpResponseStatus.OK.equals(response.status())) {
+        answer(cache, key, flight, () -> snapshot(response, 0, 0));
+      } else {
+        release(cache, key, flight);
+      }
+    });
+    return false;
+  }
+
+  private static boolean isConditional(HttpRequest request) {
+    HttpHeaders headers = request.headers();
+    return headers.contains(HttpHeaderNames.IF_NONE_MATCH) || headers.contains(HttpHeaderNames.IF_MODIFIED_SINCE);
+  }
+
+  /**
+   * Write the outcome of the execution to every parked request, each gets a
+   * retained duplicate of one copy that is released once all are written,
+   * or a 304 when its own validators match.
+   */
+  private void answer(RouteCache cache, String key, InFlight flight, Supplier<CachedResponse> outcome) {
+    cache.inFlight().remove(key, flight);
+    List<InFlight.Waiter> waiters = flight.finish();
+    if (waiters.isEmpty()) {
+      return;
+    }
+    CachedResponse response = outcome.get();
+    long now = System.nanoTime();
+    try {
+      for (InFlight.Waiter waiter : waiters) {
+        RequestContext ctx = waiter.context();
+        if (ConditionalRequests.isNotModified(ctx.request().httpRequest(), response.eTag(), response.lastModified())) {
+          ctx.writeAndFlush(ConditionalRequests.notModifiedResponse(response.eTag(), response.lastModified()));
+        } else {
+          ctx.writeAndFlush(response.toResponse(now));
+        }
+      }
+    } finally {
+      response.release();
+    }
+  }
+
+  /**
+   * Let every parked request run the route itself, the execution did not
+   * produce a response they can share
+   */
+  private void release(RouteCache cache, String key, InFlight flight) {
+    cache.inFlight().remove(key, flight);
+    for (InFlight.Waiter waiter : flight.finish()) {
+      waiter.context().captureResponse(response -> store(cache, key, response));
+      waiter.run();
+    }
+  }
+
+  private CachedResponse statusResponse(HttpResponseStatus status) {
+    FullHttpResponse response = ResultUtils.contentResponse(status.reasonPhrase());
+    response.setStatus(status);
+    try {
+      return snapshot(response, 0, 0);
+    } finally {
+      response.release();
+    }
+  }
+
+  /**
+   * Copy the response into a pooled direct buffer
+   */
+  private CachedResponse snapshot(FullHttpResponse response, long ttlNanos, long staleNanos) {
+    ByteBuf content = response.content();
+    int size = content.readableBytes();
+    ByteBuf copy = PooledByteBufAllocator.DEFAULT.directBuffer(size, size);
+    copy.writeBytes(content, content.readerIndex(), size);
+    HttpHeaders headers = response.headers().copy();
+    headers.remove(HttpHeaderNames.CONNECTION);
+    return new CachedResponse(response.status(), headers, copy, System.nanoTime(), ttlNanos, staleNanos);
+  }
+
+  private void store(RouteCache cache, String key, FullHttpResponse response) {
+    int size = response.content().readableBytes();
+    if (!cache.storing() || !HttpResponseStatus.OK.equals(response.status()) || size > maxBytes) {
+      synchronized (cache) {
+        CachedResponse stale = cache.get(key);
+        if (Objects.nonNull(stale)) {
+          stale.releaseRefresh();
+        }
+      }
+      return;
+    }
+
+    CachedResponse entry = snapshot(response, cache.ttlNanos(), cache.staleNanos());
+    synchronized (cache) {
+      CachedResponse previous = cache.put(key, entry);
+      if (Objects.nonNull(previous)) {
+        bytes.addAndGet(-previous.size());
+        previous.release();
+      }
+      bytes.addAndGet(size);
+      cache.stats().store();
+      while (cache.size() > cache.maxEntries()) {
+        evictEldest(cache);
+      }
+    }
+    if (bytes.get() > maxBytes) {
+      evictUntilBounded(cache);
+    }
+  }
+
+  /**
+   * Evict from the route that just stored first, then from the others in turn
+   */
+  private void evictUntilBounded(RouteCache first) {
+    synchronized (first) {
+      while (bytes.get() > maxBytes && evictEldest(first)) {
+        if (log.isDebugEnabled()) {
+          log.debug("output cache over {} bytes, evicted from {}", maxBytes, first.url());
+        }
+      }
+    }
+    boolean evicted = true;
+    while (bytes.get() > maxBytes && evicted) {
+      evicted = false;
+      for (Optional<RouteCache> cache : routes.values()) {
+        if (!cache.isPresent()) {
+          continue;
+        }
+        RouteCache routeCache = cache.get();
+        synchronized (routeCache) {
+          evicted |= evictEldest(routeCache);
+        }
+        if (bytes.get() <= maxBytes) {
+          return;
+        }
+      }
+    }
+  }
+
+  private boolean evictEldest(RouteCache cache) {
+    CachedResponse eldest = cache.removeEldest();
+    if (Objects.isNull(eldest)) {
+      return false;
+    }
+    bytes.addAndGet(-eldest.size());
+    eldest.release();
+    cache.stats().eviction();
+    return true;
+  }
+
+  private void remove(RouteCache cache, String key, CachedResponse entry) {
+    if (cache.remove(key, entry)) {
+      bytes.addAndGet(-entry.size());
+      entry.release();
+    }
+  }
+
+  private void clear(RouteCache cache) {
+    synchronized (cache) {
+      Iterator<CachedResponse> iterator = cache.iterator();
+      while (iterator.hasNext()) {
+        CachedResponse entry = iterator.next();
+        iterator.remove();
+        bytes.addAndGet(-entry.size());
+        entry.release();
+      }
+    }
+  }
+}
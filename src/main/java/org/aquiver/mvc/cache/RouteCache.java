@@ -0,0 +1,166 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.mvc.cache;
+
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import org.aquiver.Request;
+import org.aquiver.mvc.annotation.OutputCache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Entries of one cached route in least recently used order, guarded by the
+ * instance monitor, and the executions in flight when the route coalesces.
+ *
+ * @author WangYi
+ * @since 2020/9/5
+ */
+final class RouteCache {
+  private final String url;
+  private final OutputCache policy;
+  private final long ttlNanos;
+  private final long staleNanos;
+  private final boolean allParams;
+  private final RouteCacheStats stats = new RouteCacheStats();
+  private final LinkedHashMap<String, CachedResponse> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private final Map<String, InFlight> inFlight = new ConcurrentHashMap<>();
+
+  RouteCache(String url, OutputCache policy) {
+    this.url = url;
+    this.policy = policy;
+    this.ttlNanos = policy.unit().toNanos(policy.ttl());
+    this.staleNanos = policy.unit().toNanos(policy.staleWhileRevalidate());
+    this.allParams = policy.queryParams().length == 1
+            && OutputCache.ALL_PARAMS.equals(policy.queryParams()[0]);
+  }
+
+  /**
+   * Key of the request: method, path, selected query parameters and the
+   * values of the vary headers.
+   */
+  String key(Request request) {
+    String uri = request.uri();
+    int queryStart = uri.indexOf('?');
+    StringBuilder key = new StringBuilder(64).append(request.httpMethodName()).append(' ');
+    key.append(queryStart < 0 ? uri : uri.substring(0, queryStart));
+    if (allParams) {
+      if (queryStart >= 0) {
+        key.append(uri, queryStart, uri.length());
+      }
+    } else if (policy.queryParams().length > 0 && queryStart >= 0) {
+      Map<String, List<String>> parameters = new QueryStringDecoder(uri).parameters();
+      for (String name : policy.queryParams()) {
+        List<String> values = parameters.get(name);
+        if (Objects.nonNull(values)) {
+          key.append('&').append(name).append('=').append(values);
+        }
+      }
+    }
+    HttpHeaders headers = request.headers();
+    for (String name : policy.vary()) {
+      key.append('\n').append(headers.get(name, ""));
+    }
+    return key.toString();
+  }
+
+  CachedResponse get(String key) {
+    return entries.get(key);
+  }
+
+  CachedResponse put(String key, CachedResponse entry) {
+    return entries.put(key, entry);
+  }
+
+  boolean remove(String key, CachedResponse entry) {
+    return entries.remove(key, entry);
+  }
+
+  /**
+   * Remove the least recently used entry
+   *
+   * @return removed entry or null when empty
+   */
+  CachedResponse removeEldest() {
+    Iterator<CachedResponse> iterator = entries.values().iterator();
+    if (!iterator.hasNext()) {
+      return null;
+    }
+    CachedResponse eldest = iterator.next();
+    iterator.remove();
+    return eldest;
+  }
+
+  Iterator<CachedResponse> iterator() {
+    return entries.values().iterator();
+  }
+
+  int size() {
+    return entries.size();
+  }
+
+  int maxEntries() {
+    return policy.maxEntries();
+  }
+
+  /**
+   * Whether responses are kept at all, a route may only coalesce
+   */
+  boolean storing() {
+    return ttlNanos + staleNanos > 0;
+  }
+
+  boolean coalesce() {
+    return policy.coalesce();
+  }
+
+  long coalesceTimeoutMillis() {
+    return policy.coalesceTimeoutMillis();
+  }
+
+  Map<String, InFlight> inFlight() {
+    return inFlight;
+  }
+
+  long ttlNanos() {
+    return ttlNanos;
+  }
+
+  long staleNanos() {
+    return staleNanos;
+  }
+
+  String url() {
+    return url;
+  }
+
+  RouteCacheStats stats() {
+    return stats;
+  }
+}
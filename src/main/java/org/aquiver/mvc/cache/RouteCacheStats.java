@@ -0,0 +1,118 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.mvc.cache;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of one cached route
+ *
+ * @author WangYi
+ * @since 2020/9/5
+ */
+public final class RouteCacheStats {
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder staleHits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder stores = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+  private final LongAdder collapsed = new LongAdder();
+
+  void hit() {
+    hits.increment();
+  }
+
+  void staleHit() {
+    staleHits.increment();
+  }
+
+  void miss() {
+    misses.increment();
+  }
+
+  void store() {
+    stores.increment();
+  }
+
+  void eviction() {
+    evictions.increment();
+  }
+
+  void collapse() {
+    collapsed.increment();
+  }
+
+  public long hits() {
+    return hits.sum();
+  }
+
+  public long staleHits() {
+    return staleHits.sum();
+  }
+
+  public long misses() {
+    return misses.sum();
+  }
+
+  public long stores() {
+    return stores.sum();
+  }
+
+  public long evictions() {
+    return evictions.sum();
+  }
+
+  /**
+   * Number of requests that waited for another request's execution
+   *
+   * @return collapsed request count
+   */
+  public long collapsed() {
+    return collapsed.sum();
+  }
+
+  /**
+   * Share of requests answered from the cache, stale hits included
+   *
+   * @return hit ratio between 0 and 1
+   */
+  public double hitRatio() {
+    long served = hits() + staleHits();
+    long total = served + misses();
+    return total == 0 ? 0 : (double) served / total;
+  }
+
+  @Override
+  public String toString() {
+    return "RouteCacheStats{" +
+            "hits=" + hits() +
+            ", staleHits=" + staleHits() +
+            ", misses=" + misses() +
+            ", stores=" + stores() +
+            ", evictions=" + evictions() +
+            ", collapsed=" + collapsed() +
+            ", hitRatio=" + hitRatio() +
+            '}';
+  }
+}
@@ -0,0 +1,370 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.mvc.codec;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.alibaba.fastjson.parser.ParserConfig;
+import com.alibaba.fastjson.util.TypeUtils;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import org.aquiver.mvc.http.MediaType;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Type;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * Compact binary codec for service-to-service calls (RFC 7049).
+ * <p>
+ * Objects are mapped with the same rules fastjson uses for json, so a bean
+ * encodes to a CBOR map with the same keys it would have in json and decodes
+ * back through {@link TypeUtils#cast(Object, Type, ParserConfig)}.
+ *
+ * @author WangYi
+ * @since 2020/9/5
+ */
+public final class CborMessageCodec implements MessageCodec {
+  private static final int MAJOR_UNSIGNED = 0;
+  private static final int MAJOR_NEGATIVE = 1;
+  private static final int MAJOR_BYTES = 2;
+  private static final int MAJOR_TEXT = 3;
+  private static final int MAJOR_ARRAY = 4;
+  private static final int MAJOR_MAP = 5;
+  private static final int MAJOR_TAG = 6;
+
+  private static final int FALSE = 0xf4;
+  private static final int TRUE = 0xf5;
+  private static final int NULL = 0xf6;
+  private static final int DOUBLE = 0xfb;
+  private static final int BREAK = 0xff;
+  private static final int INDEFINITE = 31;
+  private static final int MAX_DEPTH = 512;
+
+  @Override
+  public String mediaType() {
+    return MediaType.APPLICATION_CBOR_VALUE;
+  }
+
+  @Override
+  public void encode(Object value, ByteBuf out) {
+    writeValue(value, out);
+  }
+
+  @Override
+  public <T> T decode(ByteBuf in, Type type) {
+    Object value = readValue(in, 0);
+    return TypeUtils.cast(value, type, ParserConfig.getGlobalInstance());
+  }
+
+  private void writeValue(Object value, ByteBuf out) {
+    if (value == null) {
+      out.writeByte(NULL);
+    } else if (value instanceof Boolean) {
+      out.writeByte((Boolean) value ? TRUE : FALSE);
+    } else if (value instanceof CharSequence || value instanceof Character || value instanceof Enum) {
+      writeText(value.toString(), out);
+    } else if (value instanceof Byte || value instanceof Short
+            || value instanceof Integer || value instanceof Long) {
+      writeInteger(((Number) value).longValue(), out);
+    } else if (value instanceof BigInteger && ((BigInteger) value).bitLength() < Long.SIZE) {
+      writeInteger(((BigInteger) value).longValue(), out);
+    } else if (value instanceof Number) {
+      out.writeByte(DOUBLE);
+      out.writeDouble(((Number) value).doubleValue());
+    } else if (value instanceof byte[]) {
+      byte[] bytes = (byte[]) value;
+      writeHeader(MAJOR_BYTES, bytes.length, out);
+      out.writeBytes(bytes);
+    } else if (value instanceof Date) {
+      writeInteger(((Date) value).getTime(), out);
+    } else if (value instanceof Map) {
+      Map<?, ?> map = (Map<?, ?>) value;
+      writeHeader(MAJOR_MAP, map.size(), out);
+      for (Map.Entry<?, ?> entry : map.entrySet()) {
+        writeText(String.valueOf(entry.getKey()), out);
+        writeValue(entry.getValue(), out);
+      }
+    } else if (value instanceof Collection) {
+      Collection<?> collection = (Collection<?>) value;
+      writeHeader(MAJOR_ARRAY, collection.size(), out);
+      for (Object item : collection) {
+        writeValue(item, out);
+      }
+    } else if (value.getClass().isArray()) {
+      int length = Array.getLength(value);
+      writeHeader(MAJOR_ARRAY, length, out);
+      for (int i = 0; i < length; i++) {
+        writeValue(Array.get(value, i), out);
+      }
+    } else {
+      Object json = JSON.toJSON(value);
+      if (json == value) {
+        writeText(value.toString(), out);
+      } else {
+        writeValue(json, out);
+      }
+    }
+  }
+
+  private void writeInteger(long value, ByteBuf out) {
+    if (value >= 0) {
+      writeHeader(MAJOR_UNSIGNED, value, out);
+    } else {
+      writeHeader(MAJOR_NEGATIVE, -1 - value, out);
+    }
+  }
+
+  private void writeText(String text, ByteBuf out) {
+    writeHeader(MAJOR_TEXT, ByteBufUtil.utf8Bytes(text), out);
+    ByteBufUtil.writeUtf8(out, text);
+  }
+
+  private void writeHeader(int majorType, long length, ByteBuf out) {
+    int initial = majorType << 5;
+    if (length < 24) {
+      out.writeByte(initial | (int) length);
+    } else if (length < 0x100) {
+      out.writeByte(initial | 24);
+      out.writeByte((int) length);
+    } else if (length < 0x10000) {
+      out.writeByte(initial | 25);
+      out.writeShort((int) length);
+    } else if (length < 0x100000000L) {
+      out.writeByte(initial | 26);
+      out.writeInt((int) length);
+    } else {
+      out.writeByte(initial | 27);
+      out.writeLong(length);
+    }
+  }
+
+  private Object readValue(ByteBuf in, int depth) {
+    if (depth > MAX_DEPTH) {
+      throw new IllegalArgumentException("CBOR content is nested deeper than " + MAX_DEPTH);
+    }
+    int initial = in.readUnsignedByte();
+    int majorType = initial >>> 5;
+    int info = initial & 0x1f;
+    switch (majorType) {
+      case MAJOR_UNSIGNED:
+        return narrow(readDefiniteLength(in, info));
+      case MAJOR_NEGATIVE:
+        return narrow(-1 - readDefiniteLength(in, info));
+      case MAJOR_BYTES:
+        return readBytes(in, info);
+      case MAJOR_TEXT:
+        return readText(in, info);
+      case MAJOR_ARRAY:
+        return readArray(in, info, depth);
+      case MAJOR_MAP:
+        return readMap(in, info, depth);
+      case MAJOR_TAG:
+        readDefiniteLength(in, info);
+        return readValue(in, depth + 1);
+      default:
+        return readSimple(in, info);
+    }
+  }
+
+  private long readLength(ByteBuf in, int info) {
+    if (info < 24) {
+      return info;
+    }
+    switch (info) {
+      case 24:
+        return in.readUnsignedByte();
+      case 25:
+        return in.readUnsignedShort();
+      case 26:
+        return in.readUnsignedInt();
+      case 27:
+        long length = in.readLong();
+        if (length < 0) {
+          throw new IllegalArgumentException("CBOR length exceeds the signed 64-bit range");
+        }
+        return length;
+      case INDEFINITE:
+        return -1;
+      default:
+        throw new IllegalArgumentException("Malformed CBOR length: " + info);
+    }
+  }
+
+  /**
+   * Argument of an integer, a tag or a string chunk, which have no
+   * indefinite form
+   */
+  private long readDefiniteLength(ByteBuf in, int info) {
+    if (info == INDEFINITE) {
+      throw new IllegalArgumentException("Malformed CBOR: indefinite length not allowed here");
+    }
+    return readLength(in, info);
+  }
+
+  /**
+   * Additional information of a chunk of an indefinite length string, the
+   * chunk must be a definite string of the same major type
+   */
+  private int readChunkInfo(ByteBuf in, int majorType) {
+    int initial = in.readUnsignedByte();
+    if (initial >>> 5 != majorType || (initial & 0x1f) == INDEFINITE) {
+      throw new IllegalArgumentException("Malformed CBOR: invalid chunk of an indefinite length string");
+    }
+    return initial & 0x1f;
+  }
+
+  private byte[] readBytes(ByteBuf in, int info) {
+    long length = readLength(in, info);
+    if (length >= 0) {
+      byte[] bytes = new byte[checkLength(in, length)];
+      in.readBytes(bytes);
+      return bytes;
+    }
+    ByteBuf chunks = in.alloc().heapBuffer();
+    try {
+      while (!readBreak(in)) {
+        int chunkInfo = readChunkInfo(in, MAJOR_BYTES);
+        chunks.writeBytes(in, checkLength(in, readLength(in, chunkInfo)));
+      }
+      return ByteBufUtil.getBytes(chunks);
+    } finally {
+      chunks.release();
+    }
+  }
+
+  private String readText(ByteBuf in, int info) {
+    long length = readLength(in, info);
+    if (length >= 0) {
+      int size = checkLength(in, length);
+      String text = in.toString(in.readerIndex(), size, StandardCharsets.UTF_8);
+      in.skipBytes(size);
+      return text;
+    }
+    StringBuilder text = new StringBuilder();
+    while (!readBreak(in)) {
+      int chunkInfo = readChunkInfo(in, MAJOR_TEXT);
+      text.append(readText(in, chunkInfo));
+    }
+    return text.toString();
+  }
+
+  private JSONArray readArray(ByteBuf in, int info, int depth) {
+    long length = readLength(in, info);
+    if (length < 0) {
+      JSONArray array = new JSONArray();
+      while (!readBreak(in)) {
+        array.add(readValue(in, depth + 1));
+      }
+      return array;
+    }
+    JSONArray array = new JSONArray(checkLength(in, length));
+    for (long i = 0; i < length; i++) {
+      array.add(readValue(in, depth + 1));
+    }
+    return array;
+  }
+
+  private JSONObject readMap(ByteBuf in, int info, int depth) {
+    long length = readLength(in, info);
+    JSONObject object = new JSONObject(true);
+    if (length < 0) {
+      while (!readBreak(in)) {
+        object.put(String.valueOf(readValue(in, depth + 1)), readValue(in, depth + 1));
+      }
+      return object;
+    }
+    checkLength(in, length);
+    for (long i = 0; i < length; i++) {
+      object.put(String.valueOf(readValue(in, depth + 1)), readValue(in, depth + 1));
+    }
+    return object;
+  }
+
+  private Object readSimple(ByteBuf in, int info) {
+    switch (info) {
+      case 20:
+        return Boolean.FALSE;
+      case 21:
+        return Boolean.TRUE;
+      case 22:
+      case 23:
+        return null;
+      case 25:
+        return halfToDouble(in.readUnsignedShort());
+      case 26:
+        return (double) in.readFloat();
+      case 27:
+        return in.readDouble();
+      default:
+        throw new IllegalArgumentException("Unsupported CBOR simple value: " + info);
+    }
+  }
+
+  private boolean readBreak(ByteBuf in) {
+    if (in.getUnsignedByte(in.readerIndex()) == BREAK) {
+      in.skipBytes(1);
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Every item takes at least one byte, so a declared length larger than what is
+   * left in the buffer can only come from malformed or hostile input.
+   */
+  private int checkLength(ByteBuf in, long length) {
+    if (length > in.readableBytes()) {
+      throw new IllegalArgumentException("CBOR length " + length + " exceeds the remaining "
+              + in.readableBytes() + " bytes");
+    }
+    return (int) length;
+  }
+
+  private static Object narrow(long value) {
+    if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+      return (int) value;
+    }
+    return value;
+  }
+
+  private static double halfToDouble(int half) {
+    int exponent = (half >> 10) & 0x1f;
+    int mantissa = half & 0x3ff;
+    double value;
+    if (exponent == 0) {
+      value = mantissa * Math.pow(2, -24);
+    } else if (exponent != 31) {
+      value = (mantissa + 1024) * Math.pow(2, exponent - 25);
+    } else {
+      value = mantissa == 0 ? Double.POSITIVE_INFINITY : Double.NaN;
+    }
+    return (half & 0x8000) != 0 ? -value : value;
+  }
+}
@@ -0,0 +1,65 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.mvc.codec;
+
+import io.netty.buffer.ByteBuf;
+
+import java.lang.reflect.Type;
+
+/**
+ * Converts between java objects and the encoded body of a request
+ * or response, one implementation per media type.
+ *
+ * @author WangYi
+ * @since 2020/9/5
+ */
+public interface MessageCodec {
+  /**
+   * Get the media type this codec reads and writes, used to match
+   * the Accept and Content-Type headers
+   *
+   * @return media type without parameters
+   */
+  String mediaType();
+
+  /**
+   * Encode the value and append it to the buffer
+   *
+   * @param value value to encode, may be null
+   * @param out   the buffer that receives the encoded bytes
+   * @throws Exception encode exception
+   */
+  void encode(Object value, ByteBuf out) throws Exception;
+
+  /**
+   * Decode the readable bytes of the buffer into the given type
+   *
+   * @param in   encoded content
+   * @param type target type
+   * @param <T>  target type
+   * @return decoded value
+   * @throws Exception decode exception
+   */
+  <T> T decode(ByteBuf in, Type type) throws Exception;
+}
@@ -0,0 +1,203 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.mvc.codec;
+
+import org.apex.ApexContext;
+import org.aquiver.mvc.http.MediaType;
+import org.aquiver.mvc.router.RouteInfo;
+import org.aquiver.utils.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Registry of {@link MessageCodec}s, selects the codec for a request body by
+ * its Content-Type and for a response by content negotiation on Accept.
+ * <p>
+ * The negotiation result is cached per route and Accept value, so a route
+ * that is called by the same kind of client only parses the header once.
+ *
+ * @author WangYi
+ * @since 2020/9/5
+ */
+public final class MessageCodecResolver {
+  private static final Logger log = LoggerFactory.getLogger(MessageCodecResolver.class);
+
+  /** Accept values are client controlled, keep the per route cache small. */
+  private static final int MAX_NEGOTIATED_PER_ROUTE = 64;
+
+  private final List<MessageCodec> codecs = new CopyOnWriteArrayList<>();
+  private final Map<String, MessageCodec> mediaTypeMapping = new ConcurrentHashMap<>();
+  private final Map<String, Map<String, MessageCodec>> negotiated = new ConcurrentHashMap<>();
+  private final ApexContext context = ApexContext.of();
+
+  public MessageCodecResolver() {
+    this.init();
+  }
+
+  private void init() {
+    this.register(JsonMessageCodec.class);
+    this.register(CborMessageCodec.class);
+  }
+
+  public void register(Class<? extends MessageCodec> messageCodecClass) {
+    Objects.requireNonNull(messageCodecClass, "messageCodecClass can't be null");
+
+    MessageCodec messageCodec = this.context.addBean(messageCodecClass);
+    String mediaType = baseType(messageCodec.mediaType());
+    MessageCodec previous = this.mediaTypeMapping.put(mediaType, messageCodec);
+    if (Objects.nonNull(previous)) {
+      this.codecs.remove(previous);
+    }
+    this.codecs.add(messageCodec);
+    this.negotiated.clear();
+
+    if (log.isDebugEnabled()) {
+      log.debug("register MessageCodec: {} -> {}", mediaType, messageCodecClass.getName());
+    }
+  }
+
+  /**
+   * The codec used when the client accepts anything, the first registered one
+   *
+   * @return default codec
+   */
+  public MessageCodec defaultCodec() {
+    return codecs.get(0);
+  }
+
+  /**
+   * Find the codec that can read a body of the given Content-Type
+   *
+   * @param contentType Content-Type header value, may carry parameters
+   * @return matched codec or null
+   */
+  public MessageCodec lookup(String contentType) {
+    if (StringUtils.isEmpty(contentType)) {
+      return null;
+    }
+    return mediaTypeMapping.get(baseType(contentType));
+  }
+
+  /**
+   * Select the codec for the response of a route from the Accept header.
+   * Falls back to the default codec when nothing registered is acceptable.
+   *
+   * @param routeInfo current route, may be null
+   * @param accept    Accept header value, may be null
+   * @return selected codec
+   */
+  public MessageCodec negotiate(RouteInfo routeInfo, String accept) {
+    if (StringUtils.isEmpty(accept)) {
+      return defaultCodec();
+    }
+    String routeKey = Objects.isNull(routeInfo) ? "" : routeInfo.getUrl();
+    Map<String, MessageCodec> routeCache = negotiated
+            .computeIfAbsent(routeKey, key -> new ConcurrentHashMap<>());
+    MessageCodec codec = routeCache.get(accept);
+    if (Objects.isNull(codec)) {
+      codec = select(accept);
+      if (routeCache.size() < MAX_NEGOTIATED_PER_ROUTE) {
+        routeCache.put(accept, codec);
+      }
+    }
+    return codec;
+  }
+
+  private MessageCodec select(String accept) {
+    final List<AcceptRange> ranges = new ArrayList<>();
+    for (String part : accept.split(",")) {
+      AcceptRange range = AcceptRange.parse(part);
+      if (Objects.nonNull(range) && range.quality > 0) {
+        ranges.add(range);
+      }
+    }
+    // stable sort, equal quality keeps the order the client sent
+    ranges.sort((a, b) -> Float.compare(b.quality, a.quality));
+    for (AcceptRange range : ranges) {
+      if (MediaType.ALL_VALUE.equals(range.mediaType)) {
+        return defaultCodec();
+      }
+      if (range.mediaType.endsWith("/*")) {
+        String prefix = range.mediaType.substring(0, range.mediaType.length() - 1);
+        for (MessageCodec codec : codecs) {
+          if (codec.mediaType().startsWith(prefix)) {
+            return codec;
+          }
+        }
+        continue;
+      }
+      MessageCodec codec = mediaTypeMapping.get(range.mediaType);
+      if (Objects.nonNull(codec)) {
+        return codec;
+      }
+    }
+    return defaultCodec();
+  }
+
+  private static String baseType(String mediaType) {
+    int index = mediaType.indexOf(';');
+    String baseType = index == -1 ? mediaType : mediaType.substring(0, index);
+    return baseType.trim().toLowerCase();
+  }
+
+  /**
+   * One media range of an Accept header with its quality factor
+   */
+  private static final class AcceptRange {
+    private final String mediaType;
+    private final float quality;
+
+    private AcceptRange(String mediaType, float quality) {
+      this.mediaType = mediaType;
+      this.quality = quality;
+    }
+
+    static AcceptRange parse(String value) {
+      String[] segments = value.split(";");
+      String mediaType = segments[0].trim().toLowerCase();
+      if (mediaType.isEmpty()) {
+        return null;
+      }
+      float quality = 1.0f;
+      for (int i = 1; i < segments.length; i++) {
+        String param = segments[i].trim();
+        if (param.startsWith(MediaType.PARAM_QUALITY_FACTOR + "=")) {
+          try {
+            quality = Float.parseFloat(param.substring(2));
+          } catch(NumberFormatException e) {
+            quality = 0;
+          }
+        }
+      }
+      return new AcceptRange(mediaType, quality);
+    }
+  }
+}
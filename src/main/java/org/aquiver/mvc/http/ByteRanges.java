@@ -0,0 +1,311 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.mvc.http;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.DefaultFileRegion;
+import io.netty.handler.codec.DateFormatter;
+import io.netty.handler.codec.http.*;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.handler.stream.ChunkedNioFile;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Range requests (RFC 7233) for entities of known length. One range is sent
+ * as a 206 with the requested slice only, several ranges as a
+ * {@code multipart/byteranges} body. Slices of files are zero-copy file
+ * regions, or chunked reads when the connection is encrypted.
+ *
+ * @author WangYi
+ * @since 2020/9/5
+ */
+public final class ByteRanges {
+  /** Many small ranges cost more than the whole entity, such requests get all of it. */
+  private static final int MAX_RANGES = 16;
+  private static final String BYTES_UNIT = "bytes";
+  private static final int CHUNK_SIZE = 8192;
+
+  private ByteRanges() {}
+
+  /**
+   * Parse a Range header against the entity length
+   *
+   * @param range  Range header value
+   * @param length entity length
+   * @return satisfiable ranges in ascending order with overlapping and adjacent
+   * ranges merged, empty if none is satisfiable, null if the header is invalid
+   * or asks for too many ranges and the whole entity should be sent
+   */
+  public static List<ByteRange> parse(String range, long length) {
+    if (Objects.isNull(range) || !range.startsWith(BYTES_UNIT + "=")) {
+      return null;
+    }
+    String[] specs = range.substring(BYTES_UNIT.length() + 1).split(",");
+    if (specs.length > MAX_RANGES) {
+      return null;
+    }
+    List<ByteRange> ranges = new ArrayList<>(specs.length);
+    for (String spec : specs) {
+      String value = spec.trim();
+      int dash = value.indexOf('-');
+      if (dash == -1) {
+        return null;
+      }
+      try {
+        String first = value.substring(0, dash).trim();
+        String last = value.substring(dash + 1).trim();
+        long start;
+        long end;
+        if (first.isEmpty()) {
+          // suffix range, the last n bytes
+          long suffix = Long.parseLong(last);
+          if (suffix <= 0) {
+            continue;
+          }
+          start = Math.max(0, length - suffix);
+          end = length - 1;
+        } else {
+          start = Long.parseLong(first);
+          end = length - 1;
+          if (!last.isEmpty()) {
+            long lastPosition = Long.parseLong(last);
+            if (lastPosition < start) {
+              return null;
+            }
+            end = Math.min(lastPosition, end);
+          }
+        }
+        if (start < 0) {
+          return null;
+        }
+        if (start < length) {
+          ranges.add(new ByteRange(start, end));
+        }
+      } catch(NumberFormatException e) {
+        return null;
+      }
+    }
+    return merge(ranges);
+  }
+
+  /**
+   * Coalesce overlapping and adjacent ranges, so a client can't make the
+   * same bytes be sent many times (RFC 7233 section 6.1)
+   */
+  private static List<ByteRange> merge(List<ByteRange> ranges) {
+    if (ranges.size() < 2) {
+      return ranges;
+    }
+    ranges.sort(Comparator.comparingLong(ByteRange::start));
+    List<ByteRange> merged = new ArrayList<>(ranges.size());
+    ByteRange current = ranges.get(0);
+    for (int i = 1; i < ranges.size(); i++) {
+      ByteRange next = ranges.get(i);
+      if (next.start <= current.end + 1) {
+        current = new ByteRange(current.start, Math.max(current.end, next.end));
+      } else {
+        merged.add(current);
+        current = next;
+      }
+    }
+    merged.add(current);
+    return merged;
+  }
+
+  /**
+   * Whether the Range header of the request applies, an If-Range validator
+   * must match the current entity strongly, otherwise the whole entity is sent
+   *
+   * @param request      http request
+   * @param eTag         current entity tag, may be null
+   * @param lastModified last modification time in milliseconds, negative if unknown
+   * @return true if ranges may be served
+   */
+  public static boolean isRangeApplicable(HttpRequest request, String eTag, long lastModified) {
+    if (!HttpMethod.GET.equals(request.method()) || !request.headers().contains(HttpHeaderNames.RANGE)) {
+      return false;
+    }
+    String ifRange = request.headers().get(HttpHeaderNames.IF_RANGE);
+    if (Objects.isNull(ifRange)) {
+      return true;
+    }
+    ifRange = ifRange.trim();
+    if (ifRange.startsWith("\"")) {
+      return ifRange.equals(eTag);
+    }
+    if (ifRange.startsWith("W/")) {
+      return false;
+    }
+    Date date = DateFormatter.parseHttpDate(ifRange);
+    return Objects.nonNull(date) && lastModified >= 0 && lastModified / 1000 == date.getTime() / 1000;
+  }
+
+  /**
+   * Write the head and body of a range response. The head is turned into a
+   * 206, or a 416 when no range is satisfiable. The caller writes the last
+   * http content afterwards.
+   *
+   * @param ctx         channel context
+   * @param head        response head carrying the entity headers
+   * @param ranges      parsed ranges
+   * @param length      entity length
+   * @param contentType entity content type
+   * @param body        entity body
+   * @throws IOException io exception while opening the body
+   */
+  public static void write(ChannelHandlerContext ctx, HttpResponse head, List<ByteRange> ranges,
+                           long length, String contentType, RangeBody body) throws IOException {
+    HttpHeaders headers = head.headers();
+    if (ranges.isEmpty()) {
+      head.setStatus(HttpResponseStatus.REQUESTED_RANGE_NOT_SATISFIABLE);
+      headers.remove(HttpHeaderNames.CONTENT_TYPE);
+      headers.set(HttpHeaderNames.CONTENT_RANGE, BYTES_UNIT + " */" + length);
+      headers.set(HttpHeaderNames.CONTENT_LENGTH, 0);
+      ctx.write(head);
+      return;
+    }
+
+    head.setStatus(HttpResponseStatus.PARTIAL_CONTENT);
+    if (ranges.size() == 1) {
+      ByteRange range = ranges.get(0);
+      headers.set(HttpHeaderNames.CONTENT_RANGE, range.contentRange(length));
+      headers.set(HttpHeaderNames.CONTENT_LENGTH, range.length());
+      ctx.write(head);
+      ctx.write(body.slice(ctx, range.start(), range.length()));
+      return;
+    }
+
+    String boundary = Long.toHexString(ThreadLocalRandom.current().nextLong())
+            + Long.toHexString(System.nanoTime());
+    List<String> partHeads = new ArrayList<>(ranges.size());
+    long contentLength = 0;
+    for (ByteRange range : ranges) {
+      String partHead = "\r\n--" + boundary + "\r\n"
+              + HttpHeaderNames.CONTENT_TYPE + ": " + contentType + "\r\n"
+              + HttpHeaderNames.CONTENT_RANGE + ": " + range.contentRange(length) + "\r\n\r\n";
+      partHeads.add(partHead);
+      contentLength += partHead.length() + range.length();
+    }
+    String closing = "\r\n--" + boundary + "--\r\n";
+    contentLength += closing.length();
+
+    headers.set(HttpHeaderNames.CONTENT_TYPE, MediaType.MULTIPART_BYTERANGES_VALUE + "; boundary=" + boundary);
+    headers.set(HttpHeaderNames.CONTENT_LENGTH, contentLength);
+    ctx.write(head);
+    for (int i = 0; i < ranges.size(); i++) {
+      ByteRange range = ranges.get(i);
+      ctx.write(new DefaultHttpContent(ByteBufUtil.writeAscii(ctx.alloc(), partHeads.get(i))));
+      ctx.write(body.slice(ctx, range.start(), range.length()));
+    }
+    ctx.write(new DefaultHttpContent(ByteBufUtil.writeAscii(ctx.alloc(), closing)));
+  }
+
+  /**
+   * Entity body that can be written in slices
+   */
+  @FunctionalInterface
+  public interface RangeBody {
+    /**
+     * @param ctx    channel context
+     * @param offset first byte
+     * @param length number of bytes
+     * @return message to write, a http content, file region or chunked input
+     * @throws IOException io exception
+     */
+    Object slice(ChannelHandlerContext ctx, long offset, long length) throws IOException;
+
+    /**
+     * Slices of a file, zero-copy unless the connection is encrypted
+     *
+     * @param file file
+     * @return range body
+     */
+    static RangeBody of(Path file) {
+      return (ctx, offset, length) -> {
+        if (ctx.pipeline().get(SslHandler.class) == null) {
+          return new DefaultFileRegion(file.toFile(), offset, length);
+        }
+        return new ChunkedNioFile(FileChannel.open(file, StandardOpenOption.READ), offset, length, CHUNK_SIZE);
+      };
+    }
+
+    /**
+     * Slices of a buffer, each slice takes its own reference
+     *
+     * @param content content
+     * @return range body
+     */
+    static RangeBody of(ByteBuf content) {
+      return (ctx, offset, length) -> new DefaultHttpContent(content.retainedSlice(
+              content.readerIndex() + (int) offset, (int) length));
+    }
+  }
+
+  /**
+   * One satisfiable byte range, both ends inclusive
+   */
+  public static final class ByteRange {
+    private final long start;
+    private final long end;
+
+    ByteRange(long start, long end) {
+      this.start = start;
+      this.end = end;
+    }
+
+    public long start() {
+      return start;
+    }
+
+    public long end() {
+      return end;
+    }
+
+    public long length() {
+      return end - start + 1;
+    }
+
+    String contentRange(long entityLength) {
+      return BYTES_UNIT + " " + start + "-" + end + "/" + entityLength;
+    }
+
+    @Override
+    public String toString() {
+      return start + "-" + end;
+    }
+  }
+}
@@ -30,6 +30,7 @@ public interface MediaType {
   String APPLICATION_FORM_URLENCODED_VALUE = "application/x-www-form-urlencoded";
   String APPLICATION_JSON_VALUE = "application/json";
   String APPLICATION_JSON_UTF8_VALUE = "application/json;charset=UTF-8";
+  String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
   String APPLICATION_OCTET_STREAM_VALUE = "application/octet-stream";
   String APPLICATION_PDF_VALUE = "application/pdf";
   String APPLICATION_PROBLEM_JSON_VALUE = "application/problem+json";
@@ -40,9 +41,21 @@ public interface MediaType {
   String APPLICATION_XHTML_XML_VALUE = "application/xhtml+xml";
   String APPLICATION_XML_VALUE = "application/xml";
   String APPLICATION_JAVASCRIPT_VALUE = "application/javascript";
+  String APPLICATION_MANIFEST_JSON_VALUE = "application/manifest+json";
+  String APPLICATION_WASM_VALUE = "application/wasm";
+  String APPLICATION_ZIP_VALUE = "application/zip";
+  String AUDIO_MPEG_VALUE = "audio/mpeg";
+  String FONT_OTF_VALUE = "font/otf";
+  String FONT_TTF_VALUE = "font/ttf";
+  String FONT_WOFF_VALUE = "font/woff";
+  String FONT_WOFF2_VALUE = "font/woff2";
   String IMAGE_GIF_VALUE = "image/gif";
   String IMAGE_JPEG_VALUE = "image/jpeg";
   String IMAGE_PNG_VALUE = "image/png";
+  String IMAGE_SVG_XML_VALUE = "image/svg+xml";
+  String IMAGE_WEBP_VALUE = "image/webp";
+  String IMAGE_X_ICON_VALUE = "image/x-icon";
+  String MULTIPART_BYTERANGES_VALUE = "multipart/byteranges";
   String MULTIPART_FORM_DATA_VALUE = "multipart/form-data";
   String MULTIPART_MIXED_VALUE = "multipart/mixed";
   String MULTIPART_RELATED_VALUE = "multipart/related";
@@ -52,5 +65,8 @@ public interface MediaType {
   String TEXT_PLAIN_VALUE = "text/plain";
   String TEXT_XML_VALUE = "text/xml";
   String TEXT_CSS_VALUE = "text/css";
+  String TEXT_CSV_VALUE = "text/csv";
+  String VIDEO_MP4_VALUE = "video/mp4";
+  String VIDEO_WEBM_VALUE = "video/webm";
   String PARAM_QUALITY_FACTOR = "q";
 }
@@ -0,0 +1,102 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.mvc.http;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * File extension to content type table for static assets, built from the
+ * {@link MediaType} constants. Textual types carry the UTF-8 charset.
+ *
+ * @author WangYi
+ * @since 2020/9/5
+ */
+public final class MimeTypes {
+  private static final String CHARSET_UTF8 = "; charset=UTF-8";
+  private static final Map<String, String> extensions = new HashMap<>(64);
+
+  static {
+    text("html", "text/html");
+    text("htm", "text/html");
+    text("css", MediaType.TEXT_CSS_VALUE);
+    text("js", MediaType.APPLICATION_JAVASCRIPT_VALUE);
+    text("mjs", MediaType.APPLICATION_JAVASCRIPT_VALUE);
+    text("json", MediaType.APPLICATION_JSON_VALUE);
+    text("map", MediaType.APPLICATION_JSON_VALUE);
+    text("webmanifest", MediaType.APPLICATION_MANIFEST_JSON_VALUE);
+    text("xml", MediaType.APPLICATION_XML_VALUE);
+    text("xhtml", MediaType.APPLICATION_XHTML_XML_VALUE);
+    text("rss", MediaType.APPLICATION_RSS_XML_VALUE);
+    text("atom", MediaType.APPLICATION_ATOM_XML_VALUE);
+    text("svg", MediaType.IMAGE_SVG_XML_VALUE);
+    text("txt", MediaType.TEXT_PLAIN_VALUE);
+    text("csv", MediaType.TEXT_CSV_VALUE);
+    text("md", MediaType.TEXT_MARKDOWN_VALUE);
+    binary("png", MediaType.IMAGE_PNG_VALUE);
+    binary("gif", MediaType.IMAGE_GIF_VALUE);
+    binary("jpg", MediaType.IMAGE_JPEG_VALUE);
+    binary("jpeg", MediaType.IMAGE_JPEG_VALUE);
+    binary("webp", MediaType.IMAGE_WEBP_VALUE);
+    binary("ico", MediaType.IMAGE_X_ICON_VALUE);
+    binary("woff", MediaType.FONT_WOFF_VALUE);
+    binary("woff2", MediaType.FONT_WOFF2_VALUE);
+    binary("ttf", MediaType.FONT_TTF_VALUE);
+    binary("otf", MediaType.FONT_OTF_VALUE);
+    binary("wasm", MediaType.APPLICATION_WASM_VALUE);
+    binary("pdf", MediaType.APPLICATION_PDF_VALUE);
+    binary("zip", MediaType.APPLICATION_ZIP_VALUE);
+    binary("mp3", MediaType.AUDIO_MPEG_VALUE);
+    binary("mp4", MediaType.VIDEO_MP4_VALUE);
+    binary("webm", MediaType.VIDEO_WEBM_VALUE);
+  }
+
+  private MimeTypes() {}
+
+  private static void text(String extension, String mediaType) {
+    extensions.put(extension, mediaType + CHARSET_UTF8);
+  }
+
+  private static void binary(String extension, String mediaType) {
+    extensions.put(extension, mediaType);
+  }
+
+  /**
+   * Content type of a file by its extension
+   *
+   * @param fileName file name or path
+   * @return content type, application/octet-stream when the extension is unknown
+   */
+  public static String forFileName(String fileName) {
+    Objects.requireNonNull(fileName, "fileName can't be null");
+    int dot = fileName.lastIndexOf('.');
+    if (dot == -1 || dot < fileName.lastIndexOf('/')) {
+      return MediaType.APPLICATION_OCTET_STREAM_VALUE;
+    }
+    String contentType = extensions.get(fileName.substring(dot + 1).toLowerCase(Locale.ROOT));
+    return Objects.isNull(contentType) ? MediaType.APPLICATION_OCTET_STREAM_VALUE : contentType;
+  }
+}
@@ -23,6 +23,8 @@
  */
 package org.aquiver.mvc.router;
 
+import org.aquiver.ResultHandler;
+import org.aquiver.mvc.annotation.Compress;
 import org.aquiver.mvc.annotation.HttpMethod;
 import org.aquiver.mvc.router.views.HTMLView;
 import org.aquiver.mvc.router.views.ViewType;
@@ -42,6 +44,8 @@ public class RouteInfo {
   private Object invokeResult;
   private ViewType viewType;
   private HTMLView htmlView;
+  private ResultHandler resultHandler;
+  private Compress compress;
 
   private RouteInfo(String url, Class<?> clazz, Object bean, Method method, HttpMethod httpMethod) {
     this.url = url;
@@ -49,6 +53,8 @@ public class RouteInfo {
     this.method = method;
     this.httpMethod = httpMethod;
     this.bean = bean;
+    this.compress = method.isAnnotationPresent(Compress.class)
+            ? method.getAnnotation(Compress.class) : clazz.getAnnotation(Compress.class);
   }
 
   public static RouteInfo of(String url, Class<?> clazz, Object bean, Method method, HttpMethod httpMethod) {
@@ -139,6 +145,22 @@ public class RouteInfo {
     this.htmlView = htmlView;
   }
 
+  public ResultHandler getResultHandler() {
+    return resultHandler;
+  }
+
+  public void setResultHandler(ResultHandler resultHandler) {
+    this.resultHandler = resultHandler;
+  }
+
+  public Compress getCompress() {
+    return compress;
+  }
+
+  public void setCompress(Compress compress) {
+    this.compress = compress;
+  }
+
   @Override
   public String toString() {
     return "Route{" +
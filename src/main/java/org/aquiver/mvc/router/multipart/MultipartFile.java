@@ -25,15 +25,19 @@ package org.aquiver.mvc.router.multipart;
 
 import io.netty.channel.*;
 import io.netty.handler.codec.http.*;
+import org.aquiver.mvc.http.ByteRanges;
+import org.aquiver.mvc.http.MediaType;
+import org.aquiver.result.ConditionalRequests;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.RandomAccessFile;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
+import java.util.List;
+import java.util.Objects;
 
 import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
 
@@ -54,33 +58,56 @@ public class MultipartFile {
   private String path;
   private long length;
   private ChannelHandlerContext context;
+  private HttpRequest request;
 
   public String readFileContent() throws IOException {
     return new String(Files.readAllBytes(file.toPath()));
   }
 
+  /**
+   * Send a file as attachment. Range and If-Range requests are answered with
+   * the requested slices, so interrupted downloads can resume.
+   *
+   * @param path file path
+   */
   public void download(String path) {
     File file = new File(path);
+    if (!file.isFile()) {
+      log.warn("file {} not found", file.getPath());
+      return;
+    }
     try {
-      final RandomAccessFile raf = new RandomAccessFile(file, "r");
-      long fileLength = raf.length();
+      final long fileLength = file.length();
+      final long lastModified = file.lastModified();
+      final String eTag = "\"" + Long.toHexString(fileLength) + "-" + Long.toHexString(lastModified) + "\"";
       HttpResponse response = new DefaultHttpResponse(HTTP_1_1, HttpResponseStatus.OK);
-      response.headers().set(HttpHeaderNames.CONTENT_LENGTH, fileLength);
-      response.headers().set(HttpHeaderNames.CONTENT_TYPE, "application/octet-stream");
+      response.headers().set(HttpHeaderNames.CONTENT_TYPE, MediaType.APPLICATION_OCTET_STREAM_VALUE);
       response.headers().add(HttpHeaderNames.CONTENT_DISPOSITION,
               String.format("attachment; filename=\"%s\"", file.getName()));
+      response.headers().set(HttpHeaderNames.ACCEPT_RANGES, HttpHeaderValues.BYTES);
+      ConditionalRequests.setValidators(response.headers(), eTag, lastModified);
+
+      ByteRanges.RangeBody body = ByteRanges.RangeBody.of(file.toPath());
+      List<ByteRanges.ByteRange> ranges = null;
+      if (Objects.nonNull(request) && ByteRanges.isRangeApplicable(request, eTag, lastModified)) {
+        ranges = ByteRanges.parse(request.headers().get(HttpHeaderNames.RANGE), fileLength);
+      }
+      if (Objects.nonNull(ranges)) {
+        ByteRanges.write(context, response, ranges, fileLength, MediaType.APPLICATION_OCTET_STREAM_VALUE, body);
+        this.context.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT);
+        return;
+      }
 
+      response.headers().set(HttpHeaderNames.CONTENT_LENGTH, fileLength);
       this.context.write(response);
 
-      ChannelFuture sendFileFuture = context.write(new DefaultFileRegion(raf.getChannel(),
-              0, fileLength), context.newProgressivePromise());
+      ChannelFuture sendFileFuture = context.write(body.slice(context, 0, fileLength),
+              context.newProgressivePromise());
 
       sendFileFuture.addListener(new ChannelProgressiveFutureListener() {
         @Override
-        public void operationComplete(ChannelProgressiveFuture future)
-                throws Exception {
+        public void operationComplete(ChannelProgressiveFuture future) {
           log.info("file {} transfer complete.", file.getName());
-          raf.close();
         }
 
         @Override
@@ -95,7 +122,7 @@ public class MultipartFile {
       });
       this.context.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT);
     } catch (IOException e) {
-      log.warn("file {} not found", file.getPath());
+      log.warn("file {} can't be read", file.getPath(), e);
     }
   }
 
@@ -174,4 +201,13 @@ public class MultipartFile {
   public void channelContext(ChannelHandlerContext context) {
     this.context = context;
   }
+
+  /**
+   * The request being answered, its Range headers apply to {@link #download(String)}
+   *
+   * @param request http request
+   */
+  public void request(HttpRequest request) {
+    this.request = request;
+  }
 }
@@ -24,6 +24,7 @@
 package org.aquiver.mvc.router.views;
 
 import java.io.IOException;
+import java.io.Writer;
 import java.util.Map;
 
 /**
@@ -47,4 +48,16 @@ public interface HTMLView {
    * @throws IOException io exception
    */
   String renderView(String htmlPath, Map<String, Object> viewParams) throws IOException;
+
+  /**
+   * Render the view into a writer
+   *
+   * @param htmlPath   html path
+   * @param viewParams view render params
+   * @param writer     receives the rendered content
+   * @throws IOException io exception
+   */
+  default void renderView(String htmlPath, Map<String, Object> viewParams, Writer writer) throws IOException {
+    writer.write(renderView(htmlPath, viewParams));
+  }
 }
@@ -0,0 +1,213 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.mvc.router.views;
+
+import com.mitchellbosecke.pebble.PebbleEngine;
+import com.mitchellbosecke.pebble.cache.PebbleCache;
+import com.mitchellbosecke.pebble.cache.tag.ConcurrentMapTagCache;
+import com.mitchellbosecke.pebble.template.PebbleTemplate;
+import org.apex.ApexContext;
+import org.apex.Environment;
+import org.aquiver.Aquiver;
+import org.aquiver.cache.Cache;
+import org.aquiver.cache.CacheManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.aquiver.server.Const.*;
+
+/**
+ * Shared {@link PebbleEngine} of every html view. Compiled templates live in
+ * the {@code pebble-templates} cache of the {@link CacheManager}, bounded by
+ * {@code server.template.cache-size}, so a template is compiled once no matter
+ * how many routes render it.
+ * <p>
+ * The engine is created on first use, after the environment is loaded.
+ *
+ * @author WangYi
+ * @since 2020/9/5
+ */
+public final class PebbleEngineKit {
+  private static final Logger log = LoggerFactory.getLogger(PebbleEngineKit.class);
+  private static final String TEMPLATE_CACHE_NAME = "pebble-templates";
+
+  private static volatile PebbleEngine engine;
+  private static volatile Cache<Object, PebbleTemplate> templateCache;
+  private static volatile ConcurrentMapTagCache tagCache;
+
+  private PebbleEngineKit() {}
+
+  /**
+   * Get the shared engine, created on first use
+   *
+   * @return shared engine
+   */
+  public static PebbleEngine engine() {
+    PebbleEngine current = engine;
+    if (current == null) {
+      synchronized (PebbleEngineKit.class) {
+        current = engine;
+        if (current == null) {
+          current = build();
+          engine = current;
+        }
+      }
+    }
+    return current;
+  }
+
+  private static PebbleEngine build() {
+    Environment environment = Aquiver.of().environment();
+    boolean cacheActive = environment.getBoolean(PATH_SERVER_TEMPLATE_CACHE, SERVER_TEMPLATE_CACHE);
+    long cacheSize = environment.getLong(PATH_SERVER_TEMPLATE_CACHE_SIZE, SERVER_TEMPLATE_CACHE_SIZE);
+
+    CacheManager cacheManager = ApexContext.of().getBean(CacheManager.class);
+    if (Objects.isNull(cacheManager)) {
+      cacheManager = new CacheManager();
+    }
+    Cache<Object, PebbleTemplate> cache = cacheManager.cache(TEMPLATE_CACHE_NAME, cacheSize, 0, TimeUnit.MILLISECONDS);
+    ConcurrentMapTagCache tags = new ConcurrentMapTagCache();
+    templateCache = cache;
+    tagCache = tags;
+
+    if (log.isDebugEnabled()) {
+      log.debug("create PebbleEngine: cache={}, cache-size={}", cacheActive, cacheSize);
+    }
+    return new PebbleEngine.Builder().cacheActive(cacheActive)
+            .templateCache(new TemplateCache(cache)).tagCache(tags).build();
+  }
+
+  /**
+   * Compile every template under the folder on the classpath, so the first
+   * requests do not pay for parsing. Templates that fail to compile are
+   * logged and left for the request that renders them.
+   *
+   * @param folder classpath folder, such as {@code templates}
+   * @return number of compiled templates
+   */
+  public static int precompile(String folder) {
+    Objects.requireNonNull(folder, "folder can't be null");
+
+    final long start = System.currentTimeMillis();
+    final PebbleEngine pebbleEngine = engine();
+    int compiled = 0;
+    for (String name : templateNames(folder)) {
+      try {
+        pebbleEngine.getTemplate(name);
+        compiled++;
+      } catch(RuntimeException e) {
+        log.warn("Precompile template {} failed", name, e);
+      }
+    }
+    log.info("Precompiled {} templates in {}ms", compiled, System.currentTimeMillis() - start);
+    return compiled;
+  }
+
+  /**
+   * Drop all compiled templates and cached tag output, the next render of a
+   * template compiles it again
+   */
+  public static void invalidate() {
+    Cache<Object, PebbleTemplate> cache = templateCache;
+    if (cache != null) {
+      cache.invalidateAll();
+    }
+    ConcurrentMapTagCache tags = tagCache;
+    if (tags != null) {
+      tags.invalidateAll();
+    }
+  }
+
+  private static List<String> templateNames(String folder) {
+    URL url = PebbleEngineKit.class.getClassLoader().getResource(folder);
+    if (Objects.isNull(url)) {
+      return new ArrayList<>();
+    }
+    try {
+      if ("jar".equals(url.getProtocol())) {
+        List<String> names = new ArrayList<>();
+        JarURLConnection connection = (JarURLConnection) url.openConnection();
+        connection.setUseCaches(false);
+        try (JarFile jarFile = connection.getJarFile()) {
+          Enumeration<JarEntry> entries = jarFile.entries();
+          while (entries.hasMoreElements()) {
+            JarEntry entry = entries.nextElement();
+            if (!entry.isDirectory() && entry.getName().startsWith(folder + "/")) {
+              names.add(entry.getName());
+            }
+          }
+        }
+        return names;
+      }
+      Path root = Paths.get(url.toURI());
+      try (Stream<Path> paths = Files.walk(root)) {
+        return paths.filter(Files::isRegularFile)
+                .map(path -> folder + "/" + root.relativize(path).toString().replace('\\', '/'))
+                .collect(Collectors.toList());
+      }
+    } catch(IOException | URISyntaxException e) {
+      log.warn("List templates of {} failed", folder, e);
+      return new ArrayList<>();
+    }
+  }
+
+  /**
+   * Adapts the framework cache to the template cache interface of pebble
+   */
+  private static final class TemplateCache implements PebbleCache<Object, PebbleTemplate> {
+    private final Cache<Object, PebbleTemplate> cache;
+
+    TemplateCache(Cache<Object, PebbleTemplate> cache) {
+      this.cache = cache;
+    }
+
+    @Override
+    public PebbleTemplate computeIfAbsent(Object key, Function<? super Object, ? extends PebbleTemplate> mappingFunction) {
+      return cache.get(key, mappingFunction);
+    }
+
+    @Override
+    public void invalidateAll() {
+      cache.invalidateAll();
+    }
+  }
+}
@@ -23,7 +23,6 @@
  */
 package org.aquiver.mvc.router.views;
 
-import com.mitchellbosecke.pebble.PebbleEngine;
 import com.mitchellbosecke.pebble.template.PebbleTemplate;
 
 import java.io.IOException;
@@ -32,15 +31,12 @@ import java.io.Writer;
 import java.util.Map;
 
 /**
+ * Renders through the engine shared by all views, see {@link PebbleEngineKit}.
+ *
  * @author WangYi
  * @since 2020/6/17
  */
 public class PebbleHTMLView implements HTMLView {
-  private final PebbleEngine engine;
-
-  public PebbleHTMLView() {
-    this.engine = new PebbleEngine.Builder().build();
-  }
 
   /**
    * Get the support view type.
@@ -62,9 +58,22 @@ public class PebbleHTMLView implements HTMLView {
    */
   @Override
   public String renderView(String htmlPath, Map<String, Object> viewParams) throws IOException {
-    final PebbleTemplate compiledTemplate = engine.getTemplate(htmlPath);
     final Writer writer = new StringWriter();
-    compiledTemplate.evaluate(writer, viewParams);
+    renderView(htmlPath, viewParams, writer);
     return writer.toString();
   }
+
+  /**
+   * Evaluate the template straight into the writer
+   *
+   * @param htmlPath   html path
+   * @param viewParams view render params
+   * @param writer     receives the rendered content
+   * @throws IOException io exception
+   */
+  @Override
+  public void renderView(String htmlPath, Map<String, Object> viewParams, Writer writer) throws IOException {
+    final PebbleTemplate compiledTemplate = PebbleEngineKit.engine().getTemplate(htmlPath);
+    compiledTemplate.evaluate(writer, viewParams);
+  }
 }
@@ -0,0 +1,218 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.poll;
+
+import io.netty.channel.Channel;
+import io.netty.util.Timeout;
+import org.aquiver.server.TimerKit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Handle of a parked long-poll request. A route returning it leaves the
+ * request open without holding a thread; the response is written when
+ * {@link #complete(Object)} is called from anywhere, or when the timeout
+ * on the shared wheel timer fires.
+ * <pre>{@code
+ *  @GET("/orders/{id}/status")
+ *  public LongPoll<Status> status(@PathVar String id) {
+ *    return statusChanges.park(id, 30, TimeUnit.SECONDS);
+ *  }
+ * }</pre>
+ * A request that times out is answered with the timeout value, or with
+ * {@code 204 No Content} when there is none. The timeout runs from the
+ * creation of the poll, so a poll whose route failed before returning it
+ * is still done once it expires.
+ *
+ * @author WangYi
+ * @since 2020/9/5
+ */
+public class LongPoll<T> {
+  private static final Logger log = LoggerFactory.getLogger(LongPoll.class);
+
+  private final T timeoutValue;
+  private final List<Runnable> doneCallbacks = new CopyOnWriteArrayList<>();
+  private Consumer<Object> writer;
+  private final Timeout timeout;
+  private Object value;
+  private boolean completed;
+  private boolean done;
+
+  public LongPoll(long timeout, TimeUnit unit) {
+    this(timeout, unit, null);
+  }
+
+  /**
+   * @param timeout      time the request stays parked
+   * @param unit         time unit of timeout
+   * @param timeoutValue value answered when nothing completes the poll in time, may be null
+   */
+  public LongPoll(long timeout, TimeUnit unit, T timeoutValue) {
+    Objects.requireNonNull(unit, "unit can't be null");
+    if (timeout <= 0) {
+      throw new IllegalArgumentException("timeout must be positive");
+    }
+    this.timeoutValue = timeoutValue;
+    this.timeout = TimerKit.newTimeout(t -> expire(), timeout, unit);
+  }
+
+  /**
+   * Answer the parked request with the value
+   *
+   * @param value response value, null answers 204 No Content
+   * @return false if the poll was already completed or timed out
+   */
+  public boolean complete(T value) {
+    return finish(value);
+  }
+
+  /**
+   * Whether the poll was completed, timed out or its client went away
+   *
+   * @return done state
+   */
+  public synchronized boolean isDone() {
+    return completed;
+  }
+
+  /**
+   * Register a callback run once the poll is done, whatever the reason
+   *
+   * @param callback done callback
+   */
+  public void onDone(Runnable callback) {
+    Objects.requireNonNull(callback, "callback can't be null");
+    boolean runNow;
+    synchronized (this) {
+      runNow = done;
+      if (!runNow) {
+        this.doneCallbacks.add(callback);
+      }
+    }
+    if (runNow) {
+      callback.run();
+    }
+  }
+
+  /**
+   * Attach the poll to the request channel, called by the result handler
+   * once the route returned it.
+   *
+   * @param channel request channel
+   * @param writer  writes the response for a value
+   */
+  void bind(Channel channel, Consumer<Object> writer) {
+    Object completedValue;
+    synchronized (this) {
+      if (Objects.nonNull(this.writer)) {
+        throw new IllegalStateException("LongPoll is already bound to a request");
+      }
+      this.writer = writer;
+      if (!completed) {
+        channel.closeFuture().addListener(future -> cancel());
+        return;
+      }
+      completedValue = this.value;
+    }
+    write(writer, completedValue);
+  }
+
+  private void expire() {
+    boolean unbound;
+    synchronized (this) {
+      unbound = Objects.isNull(writer);
+    }
+    // nothing may ever bind the poll, its waiters are released here and a
+    // later bind still writes the timeout value
+    if (finish(timeoutValue) && unbound) {
+      done();
+    }
+  }
+
+  private boolean finish(Object value) {
+    Consumer<Object> currentWriter;
+    synchronized (this) {
+      if (completed) {
+        return false;
+      }
+      this.completed = true;
+      this.value = value;
+      currentWriter = this.writer;
+      if (Objects.isNull(currentWriter)) {
+        // completed before the route returned, written on bind
+        return true;
+      }
+      if (Objects.nonNull(timeout)) {
+        timeout.cancel();
+      }
+    }
+    write(currentWriter, value);
+    return true;
+  }
+
+  private void cancel() {
+    synchronized (this) {
+      if (Objects.nonNull(timeout)) {
+        timeout.cancel();
+      }
+      if (completed) {
+        return;
+      }
+      this.completed = true;
+    }
+    done();
+  }
+
+  private void write(Consumer<Object> writer, Object value) {
+    try {
+      writer.accept(value);
+    } catch(Exception e) {
+      log.error("An exception occurred when writing the long poll response", e);
+    } finally {
+      done();
+    }
+  }
+
+  private void done() {
+    synchronized (this) {
+      if (done) {
+        return;
+      }
+      this.done = true;
+    }
+    for (Runnable callback : doneCallbacks) {
+      try {
+        callback.run();
+      } catch(Exception e) {
+        log.error("An exception occurred when calling the long poll done callback", e);
+      }
+    }
+  }
+}
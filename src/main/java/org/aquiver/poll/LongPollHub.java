@@ -0,0 +1,105 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.poll;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parks long-poll requests under a key and completes all of them when the
+ * key is notified. A parked request costs one entry here plus one timeout
+ * on the shared wheel timer, no thread waits for it.
+ *
+ * @param <K> key type
+ * @param <T> value type
+ * @author WangYi
+ * @since 2020/9/5
+ */
+public class LongPollHub<K, T> {
+  private final Map<K, Set<LongPoll<T>>> waiters = new ConcurrentHashMap<>();
+
+  public LongPoll<T> park(K key, long timeout, TimeUnit unit) {
+    return park(key, timeout, unit, null);
+  }
+
+  /**
+   * Park a request until the key is notified or the timeout expires
+   *
+   * @param key          notification key
+   * @param timeout      time the request stays parked
+   * @param unit         time unit of timeout
+   * @param timeoutValue value answered on timeout, may be null
+   * @return handle to return from the route
+   */
+  public LongPoll<T> park(K key, long timeout, TimeUnit unit, T timeoutValue) {
+    Objects.requireNonNull(key, "key can't be null");
+    LongPoll<T> poll = new LongPoll<>(timeout, unit, timeoutValue);
+    // added within compute, a set emptied and removed meanwhile is never reused
+    waiters.compute(key, (k, polls) -> {
+      Set<LongPoll<T>> current = Objects.isNull(polls) ? ConcurrentHashMap.newKeySet() : polls;
+      current.add(poll);
+      return current;
+    });
+    poll.onDone(() -> waiters.computeIfPresent(key, (k, current) -> {
+      current.remove(poll);
+      return current.isEmpty() ? null : current;
+    }));
+    return poll;
+  }
+
+  /**
+   * Complete every request parked under the key
+   *
+   * @param key   notification key
+   * @param value response value
+   * @return number of completed requests
+   */
+  public int notify(K key, T value) {
+    Set<LongPoll<T>> polls = waiters.remove(key);
+    if (Objects.isNull(polls)) {
+      return 0;
+    }
+    int completed = 0;
+    for (LongPoll<T> poll : polls) {
+      if (poll.complete(value)) {
+        completed++;
+      }
+    }
+    return completed;
+  }
+
+  /**
+   * Number of requests parked under the key
+   *
+   * @param key notification key
+   * @return parked count
+   */
+  public int waiting(K key) {
+    return waiters.getOrDefault(key, Collections.emptySet()).size();
+  }
+}
@@ -0,0 +1,88 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.poll;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import org.apex.ApexContext;
+import org.aquiver.RequestContext;
+import org.aquiver.ResultHandler;
+import org.aquiver.mvc.RequestResult;
+import org.aquiver.mvc.codec.MessageCodec;
+import org.aquiver.mvc.codec.MessageCodecResolver;
+import org.aquiver.result.ResultUtils;
+
+import java.util.Objects;
+
+/**
+ * Parks routes returning {@link LongPoll} until the poll is completed
+ *
+ * @author WangYi
+ * @since 2020/9/5
+ */
+public final class LongPollResultHandler implements ResultHandler {
+  private final MessageCodecResolver codecResolver;
+
+  public LongPollResultHandler() {
+    this.codecResolver = ApexContext.of().getBean(MessageCodecResolver.class);
+  }
+
+  @Override
+  public boolean support(RequestResult requestResult) {
+    return LongPoll.class.isAssignableFrom(requestResult.getResultType());
+  }
+
+  @Override
+  public void handle(RequestContext ctx, RequestResult result) {
+    LongPoll<?> poll = (LongPoll<?>) result.getResultObject();
+    if (Objects.isNull(poll)) {
+      write(ctx, null);
+      return;
+    }
+    poll.bind(ctx.request().channelHandlerContext().channel(), value -> write(ctx, value));
+  }
+
+  private void write(RequestContext ctx, Object value) {
+    if (Objects.isNull(value)) {
+      FullHttpResponse response = ResultUtils.emptyResponse();
+      response.setStatus(HttpResponseStatus.NO_CONTENT);
+      ctx.writeAndFlush(response);
+      return;
+    }
+    String accept = ctx.request().headers().get(HttpHeaderNames.ACCEPT);
+    MessageCodec codec = codecResolver.negotiate(ctx.route(), accept);
+    ByteBuf content = ctx.request().channelHandlerContext().alloc().buffer();
+    try {
+      codec.encode(value, content);
+    } catch(Exception e) {
+      content.release();
+      throw new IllegalStateException("Long poll value can't be encoded", e);
+    }
+    FullHttpResponse response = ResultUtils.contentResponse(content, codec.mediaType());
+    response.headers().set(HttpHeaderNames.VARY, HttpHeaderNames.ACCEPT);
+    ctx.writeAndFlush(response);
+  }
+}
@@ -0,0 +1,180 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.result;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Writer that encodes characters as UTF-8 straight into a pooled
+ * {@link ByteBuf}, so rendered text is never held as a String.
+ * <p>
+ * With a chunk consumer, every time the buffer reaches the chunk size it is
+ * handed over and a new one is started, a surrogate pair split across two
+ * writes is kept together. The writer is not thread safe.
+ *
+ * @author WangYi
+ * @since 2020/9/5
+ */
+public final class ByteBufWriter extends Writer {
+  private final ByteBufAllocator allocator;
+  private final int chunkSize;
+  private final Consumer<ByteBuf> chunkConsumer;
+
+  private ByteBuf buffer;
+  private char highSurrogate;
+  private boolean chunked;
+
+  /**
+   * @param allocator     allocator of the buffers
+   * @param chunkSize     number of bytes after which a chunk is handed over
+   * @param chunkConsumer takes over full chunks, null to keep everything in one buffer
+   */
+  public ByteBufWriter(ByteBufAllocator allocator, int chunkSize, Consumer<ByteBuf> chunkConsumer) {
+    Objects.requireNonNull(allocator, "allocator can't be null");
+    this.allocator = allocator;
+    this.chunkSize = chunkSize;
+    this.chunkConsumer = chunkConsumer;
+    this.buffer = allocator.buffer(chunkSize);
+  }
+
+  @Override
+  public void write(int c) {
+    write(String.valueOf((char) c), 0, 1);
+  }
+
+  @Override
+  public void write(char[] cbuf, int off, int len) {
+    writeChars(CharBuffer.wrap(cbuf), off, off + len);
+  }
+
+  @Override
+  public void write(String str, int off, int len) {
+    writeChars(str, off, off + len);
+  }
+
+  @Override
+  public Writer append(CharSequence csq) {
+    CharSequence sequence = Objects.isNull(csq) ? "null" : csq;
+    writeChars(sequence, 0, sequence.length());
+    return this;
+  }
+
+  @Override
+  public Writer append(CharSequence csq, int start, int end) {
+    writeChars(Objects.isNull(csq) ? "null" : csq, start, end);
+    return this;
+  }
+
+  private void writeChars(CharSequence chars, int start, int end) {
+    ByteBuf current = buffer();
+    if (start >= end) {
+      return;
+    }
+    if (highSurrogate != 0) {
+      char high = highSurrogate;
+      highSurrogate = 0;
+      if (Character.isLowSurrogate(chars.charAt(start))) {
+        ByteBufUtil.writeUtf8(current, CharBuffer.wrap(new char[]{high, chars.charAt(start)}));
+        start++;
+      } else {
+        ByteBufUtil.writeUtf8(current, String.valueOf(high));
+      }
+    }
+    if (start < end && Character.isHighSurrogate(chars.charAt(end - 1))) {
+      highSurrogate = chars.charAt(end - 1);
+      end--;
+    }
+    if (start < end) {
+      ByteBufUtil.writeUtf8(current, chars, start, end);
+    }
+    if (Objects.nonNull(chunkConsumer) && current.readableBytes() >= chunkSize) {
+      this.chunked = true;
+      this.buffer = allocator.buffer(chunkSize);
+      chunkConsumer.accept(current);
+    }
+  }
+
+  /**
+   * Whether a chunk was already handed to the chunk consumer
+   *
+   * @return chunked state
+   */
+  public boolean isChunked() {
+    return chunked;
+  }
+
+  /**
+   * Take over the bytes not handed over yet, the writer can't be used afterwards
+   *
+   * @return remaining content, the caller owns the reference
+   */
+  public ByteBuf detach() {
+    flushSurrogate();
+    ByteBuf content = buffer();
+    this.buffer = null;
+    return content;
+  }
+
+  /**
+   * Drop the bytes not handed over yet
+   */
+  public void release() {
+    if (Objects.nonNull(buffer)) {
+      buffer.release();
+      buffer = null;
+    }
+  }
+
+  @Override
+  public void flush() {
+  }
+
+  @Override
+  public void close() throws IOException {
+    flushSurrogate();
+  }
+
+  /** An unpaired high surrogate at the end is written as '?' like any other */
+  private void flushSurrogate() {
+    if (highSurrogate != 0 && Objects.nonNull(buffer)) {
+      ByteBufUtil.writeUtf8(buffer, String.valueOf(highSurrogate));
+      highSurrogate = 0;
+    }
+  }
+
+  private ByteBuf buffer() {
+    if (Objects.isNull(buffer)) {
+      throw new IllegalStateException("Writer content was already detached");
+    }
+    return buffer;
+  }
+}
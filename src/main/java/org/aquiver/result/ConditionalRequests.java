@@ -0,0 +1,194 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.result;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.DateFormatter;
+import io.netty.handler.codec.http.*;
+import org.aquiver.RequestContext;
+import org.aquiver.Response;
+
+import java.nio.ByteBuffer;
+import java.util.Date;
+import java.util.Objects;
+import java.util.zip.CRC32;
+
+/**
+ * Conditional GET support, compares the validators of a response with the
+ * {@code If-None-Match} and {@code If-Modified-Since} headers of the request.
+ * <p>
+ * When a handler did not supply an entity tag, a weak one is computed from
+ * the encoded body, so unchanged responses are answered with a bodiless 304
+ * instead of being sent again.
+ *
+ * @author WangYi
+ * @since 2020/9/5
+ */
+public final class ConditionalRequests {
+  private static final String WEAK_PREFIX = "W/";
+  private static final FullHttpResponse NOT_MODIFIED = notModifiedPrototype();
+
+  private ConditionalRequests() {}
+
+  /**
+   * Build the response for an encoded body, a 304 when the client already
+   * has it. The body is released if it is not sent.
+   *
+   * @param ctx         request context
+   * @param content     encoded body
+   * @param contentType body content type
+   * @return response to write
+   */
+  public static FullHttpResponse validatedResponse(RequestContext ctx, ByteBuf content, String contentType) {
+    Response response = ctx.response();
+    String eTag = Objects.isNull(response.eTag()) ? weakETag(content) : response.eTag();
+    long lastModified = response.lastModified();
+    if (isNotModified(ctx.request().httpRequest(), eTag, lastModified)) {
+      content.release();
+      return notModifiedResponse(eTag, lastModified);
+    }
+    FullHttpResponse httpResponse = ResultUtils.contentResponse(content, contentType);
+    setValidators(httpResponse.headers(), eTag, lastModified);
+    return httpResponse;
+  }
+
+  /**
+   * Weak entity tag over the readable bytes of the body, the buffer is
+   * hashed in place without copying.
+   *
+   * @param content encoded body
+   * @return weak entity tag
+   */
+  public static String weakETag(ByteBuf content) {
+    CRC32 crc = new CRC32();
+    if (content.hasArray()) {
+      crc.update(content.array(), content.arrayOffset() + content.readerIndex(), content.readableBytes());
+    } else {
+      for (ByteBuffer buffer : content.nioBuffers()) {
+        crc.update(buffer);
+      }
+    }
+    return WEAK_PREFIX + "\"" + Integer.toHexString(content.readableBytes())
+            + "-" + Long.toHexString(crc.getValue()) + "\"";
+  }
+
+  /**
+   * Whether a safe request already has the current representation.
+   * If-None-Match takes precedence over If-Modified-Since.
+   *
+   * @param request      http request
+   * @param eTag         current entity tag, may be null
+   * @param lastModified last modification time in milliseconds, negative if unknown
+   * @return true if a 304 can be answered
+   */
+  public static boolean isNotModified(HttpRequest request, String eTag, long lastModified) {
+    HttpMethod method = request.method();
+    if (!HttpMethod.GET.equals(method) && !HttpMethod.HEAD.equals(method)) {
+      return false;
+    }
+    HttpHeaders headers = request.headers();
+    String ifNoneMatch = headers.get(HttpHeaderNames.IF_NONE_MATCH);
+    if (Objects.nonNull(ifNoneMatch)) {
+      return Objects.nonNull(eTag) && matches(ifNoneMatch, eTag);
+    }
+    String ifModifiedSince = headers.get(HttpHeaderNames.IF_MODIFIED_SINCE);
+    if (Objects.nonNull(ifModifiedSince) && lastModified >= 0) {
+      Date since = DateFormatter.parseHttpDate(ifModifiedSince);
+      // http dates have second precision
+      return Objects.nonNull(since) && lastModified / 1000 <= since.getTime() / 1000;
+    }
+    return false;
+  }
+
+  /**
+   * Bodiless 304 carrying the validators, copied from a preallocated prototype
+   *
+   * @param eTag         entity tag, may be null
+   * @param lastModified last modification time in milliseconds, negative if unknown
+   * @return not modified response
+   */
+  public static FullHttpResponse notModifiedResponse(String eTag, long lastModified) {
+    FullHttpResponse response = NOT_MODIFIED.replace(Unpooled.EMPTY_BUFFER);
+    setValidators(response.headers(), eTag, lastModified);
+    return response;
+  }
+
+  /**
+   * Quote a handler supplied version key as entity tag, tags that are
+   * already quoted or weak are kept as they are.
+   *
+   * @param eTag version key or entity tag
+   * @return entity tag
+   */
+  public static String quote(String eTag) {
+    if (eTag.startsWith(WEAK_PREFIX) || eTag.startsWith("\"")) {
+      return eTag;
+    }
+    return "\"" + eTag + "\"";
+  }
+
+  /**
+   * Set the ETag and Last-Modified headers
+   *
+   * @param headers      response headers
+   * @param eTag         entity tag, may be null
+   * @param lastModified last modification time in milliseconds, negative if unknown
+   */
+  public static void setValidators(HttpHeaders headers, String eTag, long lastModified) {
+    if (Objects.nonNull(eTag)) {
+      headers.set(HttpHeaderNames.ETAG, eTag);
+    }
+    if (lastModified >= 0) {
+      headers.set(HttpHeaderNames.LAST_MODIFIED, DateFormatter.format(new Date(lastModified)));
+    }
+  }
+
+  /** Weak comparison as required for If-None-Match. */
+  private static boolean matches(String ifNoneMatch, String eTag) {
+    String opaque = opaqueTag(eTag);
+    for (String candidate : ifNoneMatch.split(",")) {
+      String tag = candidate.trim();
+      if ("*".equals(tag) || opaqueTag(tag).equals(opaque)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static String opaqueTag(String eTag) {
+    return eTag.startsWith(WEAK_PREFIX) ? eTag.substring(WEAK_PREFIX.length()) : eTag;
+  }
+
+  private static FullHttpResponse notModifiedPrototype() {
+    FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1,
+            HttpResponseStatus.NOT_MODIFIED, Unpooled.EMPTY_BUFFER);
+    HttpHeaders headers = response.headers();
+    headers.set(HttpHeaderNames.ACCESS_CONTROL_ALLOW_HEADERS, "x-requested-with,content-type");
+    headers.set(HttpHeaderNames.ACCESS_CONTROL_ALLOW_METHODS, "POST,GET");
+    headers.set(HttpHeaderNames.ACCESS_CONTROL_ALLOW_ORIGIN, "*");
+    headers.set(HttpHeaderNames.CONTENT_LENGTH, 0);
+    return response;
+  }
+}
@@ -23,24 +23,33 @@
  */
 package org.aquiver.result;
 
-import com.alibaba.fastjson.JSONObject;
-import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.buffer.ByteBuf;
 import io.netty.handler.codec.http.FullHttpResponse;
 import io.netty.handler.codec.http.HttpHeaderNames;
-import io.netty.handler.codec.http.HttpHeaders;
+import org.apex.ApexContext;
+import org.aquiver.Request;
 import org.aquiver.RequestContext;
 import org.aquiver.ResultHandler;
 import org.aquiver.mvc.RequestResult;
 import org.aquiver.mvc.annotation.JSON;
-import org.aquiver.mvc.http.MediaType;
+import org.aquiver.mvc.codec.MessageCodec;
+import org.aquiver.mvc.codec.MessageCodecResolver;
 
 import java.lang.reflect.Method;
 
 /**
+ * Writes the result with the {@link MessageCodec} negotiated from the
+ * Accept header, json unless the client asks for another registered codec.
+ *
  * @author WangYi
  * @since 2020/8/31
  */
 public final class JsonResultHandler implements ResultHandler {
+  private final MessageCodecResolver codecResolver;
+
+  public JsonResultHandler() {
+    this.codecResolver = ApexContext.of().getBean(MessageCodecResolver.class);
+  }
 
   @Override
   public boolean support(RequestResult requestResult) {
@@ -50,10 +59,25 @@ public final class JsonResultHandler implements ResultHandler {
 
   @Override
   public void handle(RequestContext ctx, RequestResult result) throws Exception {
-    String jsonString = JSONObject.toJSONString(result.getResultObject());
-    HttpHeaders httpHeaders = new DefaultHttpHeaders();
-    httpHeaders.add(HttpHeaderNames.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
-    FullHttpResponse jsonResponse = ResultUtils.contentResponse(jsonString);
-    ctx.writeAndFlush(jsonResponse);
+    if (ctx.response().checkNotModified()) {
+      return;
+    }
+    Request request = ctx.request();
+    String accept = request.headers().get(HttpHeaderNames.ACCEPT);
+    MessageCodec codec = codecResolver.negotiate(ctx.route(), accept);
+
+    ByteBuf content = request.channelHandlerContext().alloc().buffer();
+    try {
+      codec.encode(result.getResultObject(), content);
+    } catch(Exception e) {
+      content.release();
+      throw e;
+    }
+    ctx.response().setJsonResponse(true);
+    ctx.response().setMediaType(codec.mediaType());
+
+    FullHttpResponse response = ConditionalRequests.validatedResponse(ctx, content, codec.mediaType());
+    response.headers().set(HttpHeaderNames.VARY, HttpHeaderNames.ACCEPT);
+    ctx.writeAndFlush(response);
   }
 }
@@ -0,0 +1,145 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.result;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.stream.ChunkedInput;
+import io.netty.handler.stream.ChunkedWriteHandler;
+import org.aquiver.mvc.codec.MessageCodec;
+
+import java.util.Iterator;
+
+/**
+ * Pulls elements from an iterator and encodes them into bounded chunks, either
+ * as one json array or as newline delimited json (NDJSON).
+ * <p>
+ * Chunks are only requested by {@link ChunkedWriteHandler} while the channel
+ * is writable, so no more than one chunk of encoded elements is held per
+ * connection no matter how many elements the iterator yields.
+ *
+ * @author WangYi
+ * @since 2020/9/5
+ */
+public final class JsonStreamChunkedInput implements ChunkedInput<ByteBuf> {
+  private static final byte ARRAY_START = '[';
+  private static final byte ARRAY_END = ']';
+  private static final byte SEPARATOR = ',';
+  private static final byte NEWLINE = '\n';
+
+  private final Iterator<?> iterator;
+  private final AutoCloseable source;
+  private final MessageCodec codec;
+  private final boolean delimited;
+  private final int chunkSize;
+
+  private long elements;
+  private boolean started;
+  private boolean endOfInput;
+
+  /**
+   * @param iterator  element source
+   * @param source    resource closed when the stream completes or the channel
+   *                  goes away, such as the backing {@link java.util.stream.Stream}, may be null
+   * @param codec     codec used to encode each element
+   * @param delimited true for NDJSON, false for a json array
+   * @param chunkSize number of bytes after which a chunk is cut
+   */
+  public JsonStreamChunkedInput(Iterator<?> iterator, AutoCloseable source,
+                                MessageCodec codec, boolean delimited, int chunkSize) {
+    this.iterator = iterator;
+    this.source = source;
+    this.codec = codec;
+    this.delimited = delimited;
+    this.chunkSize = chunkSize;
+  }
+
+  @Override
+  public boolean isEndOfInput() {
+    return endOfInput;
+  }
+
+  @Override
+  public void close() throws Exception {
+    if (source != null) {
+      source.close();
+    }
+  }
+
+  @Deprecated
+  @Override
+  public ByteBuf readChunk(ChannelHandlerContext ctx) throws Exception {
+    return readChunk(ctx.alloc());
+  }
+
+  @Override
+  public ByteBuf readChunk(ByteBufAllocator allocator) throws Exception {
+    if (endOfInput) {
+      return null;
+    }
+    ByteBuf chunk = allocator.buffer(chunkSize);
+    try {
+      if (!started) {
+        started = true;
+        if (!delimited) {
+          chunk.writeByte(ARRAY_START);
+        }
+      }
+      while (chunk.readableBytes() < chunkSize && iterator.hasNext()) {
+        if (!delimited && elements > 0) {
+          chunk.writeByte(SEPARATOR);
+        }
+        codec.encode(iterator.next(), chunk);
+        if (delimited) {
+          chunk.writeByte(NEWLINE);
+        }
+        elements++;
+      }
+      if (!iterator.hasNext()) {
+        endOfInput = true;
+        if (!delimited) {
+          chunk.writeByte(ARRAY_END);
+        }
+      }
+      return chunk;
+    } catch(Exception e) {
+      chunk.release();
+      throw e;
+    }
+  }
+
+  @Override
+  public long length() {
+    return -1;
+  }
+
+  /**
+   * @return number of elements written so far
+   */
+  @Override
+  public long progress() {
+    return elements;
+  }
+}
@@ -23,7 +23,6 @@
  */
 package org.aquiver.result;
 
-import io.netty.handler.codec.http.FullHttpResponse;
 import org.aquiver.ModelAndView;
 import org.aquiver.RequestContext;
 import org.aquiver.ResultHandler;
@@ -31,8 +30,6 @@ import org.aquiver.mvc.RequestResult;
 import org.aquiver.mvc.router.views.HTMLView;
 import org.aquiver.mvc.router.views.PebbleHTMLView;
 
-import java.io.IOException;
-
 /**
  * @author WangYi
  * @since 2020/8/25
@@ -46,10 +43,11 @@ public final class ModelAndViewResultHandler implements ResultHandler {
   }
 
   @Override
-  public void handle(RequestContext ctx, RequestResult result) throws IOException {
+  public void handle(RequestContext ctx, RequestResult result) throws Exception {
+    if (ctx.response().checkNotModified()) {
+      return;
+    }
     ModelAndView modelAndView = (ModelAndView) result.getResultObject();
-    String renderView = this.htmlView.renderView(modelAndView.htmlPath(), modelAndView.params());
-    final FullHttpResponse responseView = ResultUtils.contentResponse(renderView);
-    ctx.writeAndFlush(responseView);
+    ViewRenderer.render(ctx, htmlView, modelAndView.htmlPath(), modelAndView.params());
   }
 }
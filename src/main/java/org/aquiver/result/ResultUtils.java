@@ -23,6 +23,7 @@
  */
 package org.aquiver.result;
 
+import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.handler.codec.http.*;
 
@@ -34,16 +35,44 @@ import java.nio.charset.StandardCharsets;
  */
 public final class ResultUtils {
   public static FullHttpResponse contentResponse(String content) {
+    return contentResponse(Unpooled.copiedBuffer(content.getBytes(StandardCharsets.UTF_8)));
+  }
+
+  public static FullHttpResponse contentResponse(ByteBuf content, String contentType) {
+    FullHttpResponse response = contentResponse(content);
+    response.headers().set(HttpHeaderNames.CONTENT_TYPE, contentType);
+    return response;
+  }
+
+  public static FullHttpResponse contentResponse(ByteBuf content) {
     final FullHttpResponse response = new DefaultFullHttpResponse(
-            HttpVersion.HTTP_1_1, HttpResponseStatus.OK, Unpooled
-            .copiedBuffer(content.getBytes(StandardCharsets.UTF_8)));
+            HttpVersion.HTTP_1_1, HttpResponseStatus.OK, content);
+
+    HttpHeaders headers = response.headers();
+    corsHeaders(headers);
+    headers.set(HttpHeaderNames.CONTENT_LENGTH, response.content().readableBytes());
+    return response;
+  }
 
+  /**
+   * Response head for a body of unknown length that follows as chunks
+   *
+   * @param contentType body content type
+   * @return response head with chunked transfer encoding
+   */
+  public static HttpResponse chunkedResponse(String contentType) {
+    final HttpResponse response = new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
     HttpHeaders headers = response.headers();
+    corsHeaders(headers);
+    headers.set(HttpHeaderNames.CONTENT_TYPE, contentType);
+    headers.set(HttpHeaderNames.TRANSFER_ENCODING, HttpHeaderValues.CHUNKED);
+    return response;
+  }
+
+  private static void corsHeaders(HttpHeaders headers) {
     headers.set(HttpHeaderNames.ACCESS_CONTROL_ALLOW_HEADERS, "x-requested-with,content-type");
     headers.set(HttpHeaderNames.ACCESS_CONTROL_ALLOW_METHODS, "POST,GET");
     headers.set(HttpHeaderNames.ACCESS_CONTROL_ALLOW_ORIGIN, "*");
-    headers.set(HttpHeaderNames.CONTENT_LENGTH, response.content().readableBytes());
-    return response;
   }
 
   public static FullHttpResponse emptyResponse() {
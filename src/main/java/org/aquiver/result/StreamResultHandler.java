@@ -0,0 +1,117 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.result;
+
+import io.netty.handler.codec.http.HttpChunkedInput;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponse;
+import org.apex.ApexContext;
+import org.aquiver.Aquiver;
+import org.aquiver.Request;
+import org.aquiver.RequestContext;
+import org.aquiver.ResultHandler;
+import org.aquiver.mvc.RequestResult;
+import org.aquiver.mvc.codec.MessageCodec;
+import org.aquiver.mvc.codec.MessageCodecResolver;
+import org.aquiver.mvc.http.MediaType;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.stream.BaseStream;
+
+import static org.aquiver.server.Const.PATH_SERVER_STREAM_CHUNK_SIZE;
+import static org.aquiver.server.Const.SERVER_STREAM_CHUNK_SIZE;
+
+/**
+ * Writes {@link Iterator}, {@link java.util.stream.Stream} and {@link Iterable}
+ * results as a chunked json array, or as NDJSON when the client accepts
+ * {@code application/x-ndjson} or {@code application/stream+json}.
+ * <p>
+ * Only the declared return type is considered, a method returning {@code List}
+ * is still written whole by {@link JsonResultHandler}.
+ *
+ * @author WangYi
+ * @since 2020/9/5
+ */
+public final class StreamResultHandler implements ResultHandler {
+  private final MessageCodecResolver codecResolver;
+  private final int chunkSize;
+
+  public StreamResultHandler() {
+    this.codecResolver = ApexContext.of().getBean(MessageCodecResolver.class);
+    this.chunkSize = Aquiver.of().environment()
+            .getInt(PATH_SERVER_STREAM_CHUNK_SIZE, SERVER_STREAM_CHUNK_SIZE);
+  }
+
+  @Override
+  public boolean support(RequestResult requestResult) {
+    Class<?> resultType = requestResult.getResultType();
+    return Iterator.class.isAssignableFrom(resultType)
+            || BaseStream.class.isAssignableFrom(resultType)
+            || Iterable.class.equals(resultType);
+  }
+
+  @Override
+  public void handle(RequestContext ctx, RequestResult result) throws Exception {
+    Request request = ctx.request();
+    boolean delimited = acceptsDelimited(request.headers().get(HttpHeaderNames.ACCEPT));
+    String mediaType = delimited ? MediaType.APPLICATION_NDJSON_VALUE : MediaType.APPLICATION_JSON_VALUE;
+
+    Object resultObject = result.getResultObject();
+    Iterator<?> iterator;
+    AutoCloseable source = null;
+    if (Objects.isNull(resultObject)) {
+      iterator = Collections.emptyIterator();
+    } else if (resultObject instanceof BaseStream) {
+      BaseStream<?, ?> stream = (BaseStream<?, ?>) resultObject;
+      iterator = stream.iterator();
+      source = stream;
+    } else if (resultObject instanceof Iterable) {
+      iterator = ((Iterable<?>) resultObject).iterator();
+    } else {
+      iterator = (Iterator<?>) resultObject;
+    }
+
+    MessageCodec codec = codecResolver.lookup(MediaType.APPLICATION_JSON_VALUE);
+    if (Objects.isNull(codec)) {
+      codec = codecResolver.defaultCodec();
+    }
+    ctx.response().setJsonResponse(true);
+    ctx.response().setMediaType(mediaType);
+
+    HttpResponse response = ResultUtils.chunkedResponse(mediaType);
+    response.headers().set(HttpHeaderNames.VARY, HttpHeaderNames.ACCEPT);
+    ctx.writeAndFlush(response, new HttpChunkedInput(
+            new JsonStreamChunkedInput(iterator, source, codec, delimited, chunkSize)));
+  }
+
+  private boolean acceptsDelimited(String accept) {
+    if (Objects.isNull(accept)) {
+      return false;
+    }
+    return accept.contains(MediaType.APPLICATION_NDJSON_VALUE)
+            || accept.contains(MediaType.APPLICATION_STREAM_JSON_VALUE);
+  }
+}
@@ -26,16 +26,26 @@ package org.aquiver.result;
 import org.aquiver.*;
 import org.aquiver.mvc.RequestResult;
 
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static org.aquiver.server.Const.SERVER_VIEW_SUFFIX;
 
 /**
+ * Renders a view named by the returned string. The {@link ViewHandler} and
+ * view path parsed from a string are cached, routes return a handful of
+ * literal view names so the prefix and suffix are only parsed once.
+ *
  * @author WangYi
  * @since 2020/8/22
  */
 public final class StringResultHandler implements ResultHandler {
+  /** Strings built per request, such as redirect targets, stop being cached past this. */
+  private static final int MAX_CACHED_VIEWS = 256;
+
   private final ViewHandlerResolver viewHandlerResolver;
+  private final Map<String, ViewTarget> viewTargets = new ConcurrentHashMap<>();
   private ViewHandler defaultViewHandler;
 
   public StringResultHandler() {
@@ -50,53 +60,48 @@ public final class StringResultHandler implements ResultHandler {
   @Override
   public void handle(RequestContext ctx, RequestResult requestResult) throws Exception {
     String result = (String) requestResult.getResultObject();
-    ViewHandler viewHandler = null;
-    String url;
-
+    ViewTarget target;
     if (result == null) {
       // 使用默认的 ViewPathName
-      url = ctx.request().uri();
+      target = new ViewTarget(defaultViewHandler(), ctx.request().uri());
     } else {
-      int idx = result.indexOf(':');
-      if (idx > 0) {
-        // 根据 URL 前缀查找 view
-        String type = result.substring(0, idx + 1);
-        url = result.substring(idx + 1);
-        viewHandler = viewHandlerResolver.lookup(type);
-        if (viewHandler == null) {
-          ctx.writeAndFlush(ResultUtils.emptyResponse());
-          return;
+      target = viewTargets.get(result);
+      if (target == null) {
+        target = resolve(result);
+        if (viewTargets.size() < MAX_CACHED_VIEWS) {
+          viewTargets.put(result, target);
         }
-      } else {
-        url = result;
       }
     }
 
-    if (viewHandler == null) {
-      // 根据后缀名查找 view
-      String suffix = getFileSuffix(result);
-      if (suffix != null) {
-        viewHandler = viewHandlerResolver.lookup(suffix);
-        if (viewHandler == null) {
-          ctx.writeAndFlush(ResultUtils.emptyResponse());
-          return;
-        }
-      }
+    if (target.viewHandler == null) {
+      ctx.writeAndFlush(ResultUtils.emptyResponse());
+      return;
     }
+    target.viewHandler.render(ctx, target.url);
+  }
 
-    if (viewHandler == null) {
-      // 使用默认配置 view
-      if (defaultViewHandler == null) {
-        defaultViewHandler = viewHandlerResolver.lookup(SERVER_VIEW_SUFFIX);
-        if (defaultViewHandler == null) {
-          ctx.writeAndFlush(ResultUtils.emptyResponse());
-          return;
-        }
-      }
-      viewHandler = defaultViewHandler;
+  private ViewTarget resolve(String result) {
+    int idx = result.indexOf(':');
+    if (idx > 0) {
+      // 根据 URL 前缀查找 view
+      String type = result.substring(0, idx + 1);
+      return new ViewTarget(viewHandlerResolver.lookup(type), result.substring(idx + 1));
     }
+    // 根据后缀名查找 view
+    String suffix = getFileSuffix(result);
+    if (suffix != null) {
+      return new ViewTarget(viewHandlerResolver.lookup(suffix), result);
+    }
+    // 使用默认配置 view
+    return new ViewTarget(defaultViewHandler(), result);
+  }
 
-    viewHandler.render(ctx, url);
+  private ViewHandler defaultViewHandler() {
+    if (defaultViewHandler == null) {
+      defaultViewHandler = viewHandlerResolver.lookup(SERVER_VIEW_SUFFIX);
+    }
+    return defaultViewHandler;
   }
 
   private String getFileSuffix(String result) {
@@ -121,4 +126,18 @@ public final class StringResultHandler implements ResultHandler {
     }
     return -1;
   }
+
+  /**
+   * View handler and view path of a returned string, a null handler means
+   * no view is registered for it
+   */
+  private static final class ViewTarget {
+    private final ViewHandler viewHandler;
+    private final String url;
+
+    ViewTarget(ViewHandler viewHandler, String url) {
+      this.viewHandler = viewHandler;
+      this.url = url;
+    }
+  }
 }
@@ -0,0 +1,104 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.result;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.FullHttpResponse;
+import org.aquiver.Aquiver;
+import org.aquiver.RequestContext;
+import org.aquiver.Response;
+import org.aquiver.mvc.http.MediaType;
+import org.aquiver.mvc.router.views.HTMLView;
+
+import java.util.Map;
+
+import static org.aquiver.server.Const.PATH_SERVER_TEMPLATE_CHUNK_SIZE;
+import static org.aquiver.server.Const.SERVER_TEMPLATE_CHUNK_SIZE;
+
+/**
+ * Renders a view straight into pooled buffers. A page that fits in
+ * {@code server.template.chunk-size} bytes is sent as one response with a
+ * validator, a larger one switches to chunked transfer while it is rendered
+ * so the page is never held whole.
+ *
+ * @author WangYi
+ * @since 2020/9/5
+ */
+public final class ViewRenderer {
+  private static volatile int chunkSize = -1;
+
+  private ViewRenderer() {}
+
+  /**
+   * Render the view and write it to the client
+   *
+   * @param ctx        request context
+   * @param htmlView   view to render
+   * @param htmlPath   template path
+   * @param viewParams render params
+   * @throws Exception render exception
+   */
+  public static void render(RequestContext ctx, HTMLView htmlView, String htmlPath,
+                            Map<String, Object> viewParams) throws Exception {
+    final ChannelHandlerContext channelContext = ctx.request().channelHandlerContext();
+    final Response response = ctx.response();
+    final ByteBufWriter writer = new ByteBufWriter(channelContext.alloc(), chunkSize(), chunk -> {
+      if (!response.isCommitted()) {
+        response.writeHead(MediaType.TEXT_HTML_VALUE);
+      }
+      response.write(chunk);
+    });
+
+    try {
+      htmlView.renderView(htmlPath, viewParams, writer);
+      writer.close();
+    } catch(Exception e) {
+      writer.release();
+      if (writer.isChunked()) {
+        // the status is already sent, only a cut connection tells the client
+        channelContext.close();
+      }
+      throw e;
+    }
+
+    ByteBuf content = writer.detach();
+    if (writer.isChunked()) {
+      response.write(content);
+      response.end();
+    } else {
+      FullHttpResponse fullResponse = ConditionalRequests.validatedResponse(ctx, content, MediaType.TEXT_HTML_VALUE);
+      ctx.writeAndFlush(fullResponse);
+    }
+  }
+
+  private static int chunkSize() {
+    int size = chunkSize;
+    if (size < 0) {
+      size = Aquiver.of().environment().getInt(PATH_SERVER_TEMPLATE_CHUNK_SIZE, SERVER_TEMPLATE_CHUNK_SIZE);
+      chunkSize = size;
+    }
+    return size;
+  }
+}
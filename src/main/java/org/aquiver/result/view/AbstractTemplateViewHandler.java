@@ -32,19 +32,46 @@ import org.aquiver.server.Const;
 
 import java.io.File;
 import java.net.URL;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
+ * Resolves a view name to its template under the templates folder. The
+ * resolved path and resource are cached per view name, including names that
+ * have no template, and dropped by {@link #invalidateResources()}.
+ *
  * @author WangYi
  * @since 2020/8/22
  */
 public abstract class AbstractTemplateViewHandler implements ViewHandler {
+  /** View names may come from the request uri, stop caching past this. */
+  private static final int MAX_CACHED_RESOURCES = 1024;
+  private static final Map<String, ViewResource> resources = new ConcurrentHashMap<>();
+
   protected final Environment environment = Aquiver.of().environment();
 
   public abstract String getPrefix();
 
   @Override
   public void render(RequestContext ctx, String viewPathName) throws Exception {
+    String key = getType() + ":" + viewPathName;
+    ViewResource resource = resources.get(key);
+    if (Objects.isNull(resource)) {
+      resource = resolve(viewPathName);
+      if (resources.size() < MAX_CACHED_RESOURCES) {
+        resources.put(key, resource);
+      }
+    }
+
+    if (Objects.isNull(resource.url)) {
+      ctx.writeAndFlush(ResultUtils.contentResponse(viewPathName));
+    } else {
+      doRender(ctx, resource.path);
+    }
+  }
+
+  private ViewResource resolve(String viewPathName) {
     String viewPath = viewPathName;
     if (!getPrefix().equals("")) {
       viewPath = "/" + getPrefix() + viewPath;
@@ -54,14 +81,29 @@ public abstract class AbstractTemplateViewHandler implements ViewHandler {
     if (!viewPath.endsWith(getSuffix())) {
       viewPath = viewPath + "." + getSuffix();
     }
+    return new ViewResource(viewPath, this.getClass().getClassLoader().getResource(viewPath));
+  }
 
-    URL viewUrl = this.getClass().getClassLoader().getResource(viewPath);
-    if (Objects.isNull(viewUrl)) {
-      ctx.writeAndFlush(ResultUtils.contentResponse(viewPathName));
-    } else {
-      doRender(ctx, viewPath);
-    }
+  /**
+   * Drop the resolved view resources, templates added or removed since are
+   * seen on the next render
+   */
+  public static void invalidateResources() {
+    resources.clear();
   }
 
   protected abstract void doRender(RequestContext ctx, String viewPathName) throws Exception;
+
+  /**
+   * Template path of a view name and its classpath resource, null if missing
+   */
+  private static final class ViewResource {
+    private final String path;
+    private final URL url;
+
+    ViewResource(String path, URL url) {
+      this.path = path;
+      this.url = url;
+    }
+  }
 }
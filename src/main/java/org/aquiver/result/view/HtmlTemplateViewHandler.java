@@ -23,22 +23,36 @@
  */
 package org.aquiver.result.view;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import io.netty.handler.codec.http.FullHttpResponse;
-import org.apex.io.FileBaseResource;
-import org.apex.io.Resource;
-import org.aquiver.server.Const;
+import io.netty.util.IllegalReferenceCountException;
 import org.aquiver.RequestContext;
-import org.aquiver.result.ResultUtils;
+import org.aquiver.mvc.http.MediaType;
+import org.aquiver.result.ConditionalRequests;
+import org.aquiver.server.Const;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
-import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
+ * Serves static html templates from memory. The bytes of a template are read
+ * once into a read-only direct buffer together with their entity tag, each
+ * response gets a retained duplicate of it, so nothing is read, decoded or
+ * copied per request. Templates are expected to be UTF-8.
+ * <p>
+ * The cached templates are dropped by {@link #invalidate()}, which the
+ * template watcher calls when a file changes.
+ *
  * @author WangYi
  * @since 2020/8/27
  */
 public final class HtmlTemplateViewHandler extends AbstractTemplateViewHandler {
+  private static final Map<String, HtmlTemplate> templates = new ConcurrentHashMap<>();
 
   @Override
   public String getPrefix() {
@@ -52,13 +66,63 @@ public final class HtmlTemplateViewHandler extends AbstractTemplateViewHandler {
 
   @Override
   protected void doRender(RequestContext ctx, String viewPathName) throws Exception {
-    URL viewUrl = this.getClass().getClassLoader().getResource(viewPathName);
-    Resource resource = new FileBaseResource(Paths.get(viewUrl.toURI()));
-    String htmlContent = new String(Files.readAllBytes(resource.getPath()));
-    FullHttpResponse response = ResultUtils.contentResponse(htmlContent);
+    ByteBuf content = null;
+    while (Objects.isNull(content)) {
+      HtmlTemplate template = templates.get(viewPathName);
+      if (Objects.isNull(template)) {
+        template = load(viewPathName);
+        HtmlTemplate previous = templates.putIfAbsent(viewPathName, template);
+        if (Objects.nonNull(previous)) {
+          template.content.release();
+          template = previous;
+        }
+      }
+      if (ctx.response().checkNotModified(template.eTag)) {
+        return;
+      }
+      try {
+        content = template.content.retainedDuplicate();
+      } catch(IllegalReferenceCountException e) {
+        // invalidated and released meanwhile, load it again
+        templates.remove(viewPathName, template);
+      }
+    }
+
+    FullHttpResponse response = ConditionalRequests.validatedResponse(ctx, content, MediaType.TEXT_HTML_VALUE);
     ctx.writeAndFlush(response);
   }
 
+  private HtmlTemplate load(String viewPathName) throws IOException {
+    URL viewUrl = this.getClass().getClassLoader().getResource(viewPathName);
+    if (Objects.isNull(viewUrl)) {
+      throw new IOException("Template not found: " + viewPathName);
+    }
+    ByteBuf heap = Unpooled.buffer();
+    try (InputStream in = viewUrl.openStream()) {
+      while (heap.writeBytes(in, 8192) > 0) {
+        // read to the end
+      }
+      ByteBuf direct = Unpooled.directBuffer(heap.readableBytes()).writeBytes(heap);
+      return new HtmlTemplate(direct.asReadOnly(), ConditionalRequests.weakETag(direct));
+    } finally {
+      heap.release();
+    }
+  }
+
+  /**
+   * Drop the cached templates and resolved view resources, responses still
+   * being written keep their duplicate until they are sent
+   */
+  public static void invalidate() {
+    invalidateResources();
+    for (String viewPathName : templates.keySet()) {
+      HtmlTemplate template = templates.remove(viewPathName);
+      if (Objects.nonNull(template)) {
+        template.content.release();
+      }
+    }
+  }
+
   @Override
   public String getType() {
     return "html";
@@ -68,4 +132,17 @@ public final class HtmlTemplateViewHandler extends AbstractTemplateViewHandler {
   public ViewHandlerType getHandlerType() {
     return ViewHandlerType.TEMPLATE_VIEW;
   }
+
+  /**
+   * Encoded template and its entity tag
+   */
+  private static final class HtmlTemplate {
+    private final ByteBuf content;
+    private final String eTag;
+
+    HtmlTemplate(ByteBuf content, String eTag) {
+      this.content = content;
+      this.eTag = eTag;
+    }
+  }
 }
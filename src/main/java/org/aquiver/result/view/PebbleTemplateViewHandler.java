@@ -23,14 +23,12 @@
  */
 package org.aquiver.result.view;
 
-import io.netty.handler.codec.http.FullHttpResponse;
 import org.aquiver.server.Const;
 import org.aquiver.RequestContext;
 import org.aquiver.mvc.router.views.HTMLView;
 import org.aquiver.mvc.router.views.PebbleHTMLView;
-import org.aquiver.result.ResultUtils;
+import org.aquiver.result.ViewRenderer;
 
-import java.io.IOException;
 import java.util.HashMap;
 
 /**
@@ -46,10 +44,8 @@ public final class PebbleTemplateViewHandler extends AbstractTemplateViewHandler
   }
 
   @Override
-  protected void doRender(RequestContext ctx, String viewPathName) throws IOException {
-    String renderView = this.htmlView.renderView(viewPathName, new HashMap<>());
-    final FullHttpResponse responseView = ResultUtils.contentResponse(renderView);
-    ctx.writeAndFlush(responseView);
+  protected void doRender(RequestContext ctx, String viewPathName) throws Exception {
+    ViewRenderer.render(ctx, this.htmlView, viewPathName, new HashMap<>());
   }
 
   @Override
@@ -0,0 +1,179 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.server;
+
+import io.netty.handler.codec.http.*;
+import org.apex.Environment;
+import org.aquiver.Aquiver;
+import org.aquiver.mvc.annotation.Compress;
+import org.aquiver.mvc.http.MediaType;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.aquiver.server.Const.*;
+
+/**
+ * Decides whether and how hard a response is compressed.
+ * <p>
+ * Full responses smaller than {@code server.compression.min-size} and
+ * responses whose type is not on {@code server.compression.mime-types} are
+ * sent as they are, entries ending with {@code /} match a whole type. A
+ * streamed response is compressed when its type allows it, unless it
+ * announces a content length: its body may then be a file region written
+ * past the compressor. Responses that already carry a content encoding,
+ * event streams and partial content are never compressed.
+ * <p>
+ * The cpu load is sampled twice a second. Above
+ * {@code server.compression.cpu-reduce} percent responses are compressed
+ * at the lowest level, above {@code server.compression.cpu-skip} percent
+ * they are not compressed at all.
+ *
+ * @author WangYi
+ * @since 2020/9/5
+ */
+public final class CompressionPolicy {
+  private static final long SAMPLE_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+  private static final int FASTEST_LEVEL = 1;
+
+  private final int minSize;
+  private final int level;
+  private final String[] mimeTypes;
+  private final double cpuReduce;
+  private final double cpuSkip;
+  private final OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+  private final AtomicLong nextSample = new AtomicLong(System.nanoTime());
+  private final CompressionStats stats = new CompressionStats();
+  private volatile double cpuLoad;
+
+  public CompressionPolicy() {
+    final Environment environment = Aquiver.of().environment();
+    this.minSize = environment.getInt(PATH_SERVER_COMPRESSION_MIN_SIZE, SERVER_COMPRESSION_MIN_SIZE);
+    this.level = environment.getInt(PATH_SERVER_COMPRESSION_LEVEL, SERVER_COMPRESSION_LEVEL);
+    this.cpuReduce = environment.getInt(PATH_SERVER_COMPRESSION_CPU_REDUCE, SERVER_COMPRESSION_CPU_REDUCE) / 100d;
+    this.cpuSkip = environment.getInt(PATH_SERVER_COMPRESSION_CPU_SKIP, SERVER_COMPRESSION_CPU_SKIP) / 100d;
+    List<String> types = new ArrayList<>();
+    for (String type : environment.get(PATH_SERVER_COMPRESSION_MIME_TYPES, SERVER_COMPRESSION_MIME_TYPES).split(",")) {
+      type = type.trim();
+      if (!type.isEmpty()) {
+        types.add(type);
+      }
+    }
+    this.mimeTypes = types.toArray(new String[0]);
+  }
+
+  /**
+   * Pick the deflate level of a response
+   *
+   * @param response response about to be written
+   * @param route    compression override of the route, may be null
+   * @return level between 1 and 9, 0 to send the response as it is
+   */
+  public int level(HttpResponse response, Compress route) {
+    if (Objects.nonNull(route) && !route.value()) {
+      stats.skip();
+      return 0;
+    }
+    if (!isCompressible(response, route)) {
+      stats.skip();
+      return 0;
+    }
+    double load = cpuLoad();
+    if (load >= cpuSkip) {
+      stats.shed();
+      return 0;
+    }
+    boolean reduced = load >= cpuReduce;
+    stats.compress(reduced);
+    if (reduced) {
+      return FASTEST_LEVEL;
+    }
+    return Objects.nonNull(route) && route.level() > 0 ? route.level() : level;
+  }
+
+  public CompressionStats stats() {
+    return stats;
+  }
+
+  private boolean isCompressible(HttpResponse response, Compress route) {
+    HttpHeaders headers = response.headers();
+    String contentEncoding = headers.get(HttpHeaderNames.CONTENT_ENCODING);
+    if (Objects.nonNull(contentEncoding) && !HttpHeaderValues.IDENTITY.contentEqualsIgnoreCase(contentEncoding)) {
+      return false;
+    }
+    if (HttpResponseStatus.PARTIAL_CONTENT.equals(response.status())) {
+      return false;
+    }
+    String contentType = headers.get(HttpHeaderNames.CONTENT_TYPE);
+    if (Objects.nonNull(contentType) && contentType.startsWith(MediaType.TEXT_EVENT_STREAM_VALUE)) {
+      return false;
+    }
+    if (response instanceof FullHttpResponse) {
+      int min = Objects.nonNull(route) && route.minSize() >= 0 ? route.minSize() : minSize;
+      if (((FullHttpResponse) response).content().readableBytes() < min) {
+        return false;
+      }
+    } else if (headers.contains(HttpHeaderNames.CONTENT_LENGTH)) {
+      return false;
+    }
+    return Objects.nonNull(route) || isAllowedType(contentType);
+  }
+
+  private boolean isAllowedType(String contentType) {
+    if (Objects.isNull(contentType)) {
+      return false;
+    }
+    for (String type : mimeTypes) {
+      if (contentType.regionMatches(true, 0, type, 0, type.length())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private double cpuLoad() {
+    long now = System.nanoTime();
+    long next = nextSample.get();
+    if (now - next >= 0 && nextSample.compareAndSet(next, now + SAMPLE_INTERVAL_NANOS)) {
+      this.cpuLoad = sampleCpuLoad();
+    }
+    return cpuLoad;
+  }
+
+  private double sampleCpuLoad() {
+    double load = -1;
+    if (os instanceof com.sun.management.OperatingSystemMXBean) {
+      load = ((com.sun.management.OperatingSystemMXBean) os).getSystemCpuLoad();
+    }
+    if (load < 0) {
+      load = os.getSystemLoadAverage() / os.getAvailableProcessors();
+    }
+    return load < 0 ? 0 : Math.min(load, 1);
+  }
+}
@@ -0,0 +1,136 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.server;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of the response compression
+ *
+ * @author WangYi
+ * @since 2020/9/5
+ */
+public final class CompressionStats {
+  private final LongAdder compressed = new LongAdder();
+  private final LongAdder reduced = new LongAdder();
+  private final LongAdder skipped = new LongAdder();
+  private final LongAdder shed = new LongAdder();
+  private final LongAdder bytesIn = new LongAdder();
+  private final LongAdder bytesOut = new LongAdder();
+  private final LongAdder encodeNanos = new LongAdder();
+
+  void compress(boolean reducedLevel) {
+    compressed.increment();
+    if (reducedLevel) {
+      reduced.increment();
+    }
+  }
+
+  void skip() {
+    skipped.increment();
+  }
+
+  void shed() {
+    shed.increment();
+  }
+
+  void encoded(long in, long out, long nanos) {
+    bytesIn.add(in);
+    bytesOut.add(out);
+    encodeNanos.add(nanos);
+  }
+
+  public long compressed() {
+    return compressed.sum();
+  }
+
+  /**
+   * Number of responses compressed at the lowest level because of the load
+   *
+   * @return reduced level response count
+   */
+  public long reduced() {
+    return reduced.sum();
+  }
+
+  /**
+   * Number of responses left alone because of their size, type or route
+   *
+   * @return skipped response count
+   */
+  public long skipped() {
+    return skipped.sum();
+  }
+
+  /**
+   * Number of responses left alone because of the load
+   *
+   * @return shed response count
+   */
+  public long loadShed() {
+    return shed.sum();
+  }
+
+  public long bytesIn() {
+    return bytesIn.sum();
+  }
+
+  public long bytesOut() {
+    return bytesOut.sum();
+  }
+
+  /**
+   * Time the event loops spent compressing
+   *
+   * @return compression time in milliseconds
+   */
+  public long encodeMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(encodeNanos.sum());
+  }
+
+  /**
+   * Compressed size relative to the original size
+   *
+   * @return ratio between 0 and 1, 0 when nothing was compressed yet
+   */
+  public double ratio() {
+    long in = bytesIn();
+    return in == 0 ? 0 : (double) bytesOut() / in;
+  }
+
+  @Override
+  public String toString() {
+    return "CompressionStats{" +
+            "compressed=" + compressed() +
+            ", reduced=" + reduced() +
+            ", skipped=" + skipped() +
+            ", loadShed=" + loadShed() +
+            ", bytesIn=" + bytesIn() +
+            ", bytesOut=" + bytesOut() +
+            ", encodeMillis=" + encodeMillis() +
+            ", ratio=" + ratio() +
+            '}';
+  }
+}
@@ -76,6 +76,81 @@ public interface Const {
   Integer DEFAULT_ACCEPT_THREAD_COUNT = 1;
   Integer DEFAULT_IO_THREAD_COUNT = 0;
 
+  // streaming result
+  String PATH_SERVER_STREAM_CHUNK_SIZE = "server.stream.chunk-size";
+  Integer SERVER_STREAM_CHUNK_SIZE = 8192;
+  String PATH_SERVER_RESPONSE_FLUSH_THRESHOLD = "server.response.flush-threshold";
+  Integer SERVER_RESPONSE_FLUSH_THRESHOLD = 8192;
+
+  // server-sent events
+  String PATH_SERVER_SSE_HEARTBEAT = "server.sse.heartbeat-interval";
+  Long SERVER_SSE_HEARTBEAT = 15000L;
+
+  // output cache
+  String PATH_SERVER_OUTPUT_CACHE_MAX_BYTES = "server.output-cache.max-bytes";
+  Long SERVER_OUTPUT_CACHE_MAX_BYTES = 64L * 1024 * 1024;
+
+  // template engine
+  String PATH_SERVER_TEMPLATE_CACHE = "server.template.cache";
+  Boolean SERVER_TEMPLATE_CACHE = true;
+  String PATH_SERVER_TEMPLATE_CACHE_SIZE = "server.template.cache-size";
+  Long SERVER_TEMPLATE_CACHE_SIZE = 512L;
+  String PATH_SERVER_TEMPLATE_PRECOMPILE = "server.template.precompile";
+  Boolean SERVER_TEMPLATE_PRECOMPILE = false;
+  String PATH_SERVER_TEMPLATE_CHUNK_SIZE = "server.template.chunk-size";
+  Integer SERVER_TEMPLATE_CHUNK_SIZE = 32768;
+
+  // static files
+  String PATH_SERVER_STATIC_FOLDERS = "server.static.folders";
+  String SERVER_STATIC_FOLDERS = "static,public";
+  String PATH_SERVER_STATIC_CACHE_FILE_SIZE = "server.static.cache.file-size";
+  Long SERVER_STATIC_CACHE_FILE_SIZE = 64L * 1024;
+  String PATH_SERVER_STATIC_CACHE_MAX_BYTES = "server.static.cache.max-bytes";
+  Long SERVER_STATIC_CACHE_MAX_BYTES = 32L * 1024 * 1024;
+  String PATH_SERVER_STATIC_PRECOMPRESS = "server.static.precompress";
+  Boolean SERVER_STATIC_PRECOMPRESS = true;
+  String PATH_SERVER_STATIC_CACHE_CONTROL = "server.static.cache-control";
+  String SERVER_STATIC_CACHE_CONTROL = "no-cache";
+
+  // response compression
+  String PATH_SERVER_COMPRESSION_MIN_SIZE = "server.compression.min-size";
+  Integer SERVER_COMPRESSION_MIN_SIZE = 1024;
+  String PATH_SERVER_COMPRESSION_LEVEL = "server.compression.level";
+  Integer SERVER_COMPRESSION_LEVEL = 6;
+  String PATH_SERVER_COMPRESSION_MIME_TYPES = "server.compression.mime-types";
+  String SERVER_COMPRESSION_MIME_TYPES = "text/,application/json,application/javascript,application/xml,"
+          + "application/x-ndjson,application/stream+json,application/manifest+json,image/svg+xml,application/wasm";
+  String PATH_SERVER_COMPRESSION_CPU_REDUCE = "server.compression.cpu-reduce";
+  Integer SERVER_COMPRESSION_CPU_REDUCE = 75;
+  String PATH_SERVER_COMPRESSION_CPU_SKIP = "server.compression.cpu-skip";
+  Integer SERVER_COMPRESSION_CPU_SKIP = 90;
+
+  // request bodies
+  String PATH_SERVER_REQUEST_MAX_CONTENT_LENGTH = "server.request.max-content-length";
+  Integer SERVER_REQUEST_MAX_CONTENT_LENGTH = 10 * 1024 * 1024;
+  String PATH_SERVER_REQUEST_DECOMPRESSION = "server.request.decompression";
+  Boolean SERVER_REQUEST_DECOMPRESSION = true;
+  String PATH_SERVER_REQUEST_MAX_INFLATED_SIZE = "server.request.max-inflated-size";
+  Long SERVER_REQUEST_MAX_INFLATED_SIZE = 10L * 1024 * 1024;
+  String PATH_SERVER_REQUEST_MAX_INFLATION_RATIO = "server.request.max-inflation-ratio";
+  Integer SERVER_REQUEST_MAX_INFLATION_RATIO = 100;
+
+  // websocket
+  String PATH_SERVER_WEBSOCKET_MAX_MESSAGE_SIZE = "server.websocket.max-message-size";
+  Integer SERVER_WEBSOCKET_MAX_MESSAGE_SIZE = 64 * 1024;
+  String PATH_SERVER_WEBSOCKET_OUTBOUND_POLICY = "server.websocket.outbound.policy";
+  String SERVER_WEBSOCKET_OUTBOUND_POLICY = "DISCONNECT";
+  String PATH_SERVER_WEBSOCKET_OUTBOUND_MAX_QUEUED_BYTES = "server.websocket.outbound.max-queued-bytes";
+  Integer SERVER_WEBSOCKET_OUTBOUND_MAX_QUEUED_BYTES = 1024 * 1024;
+  String PATH_SERVER_WEBSOCKET_WRITE_BUFFER_LOW = "server.websocket.write-buffer.low-water-mark";
+  Integer SERVER_WEBSOCKET_WRITE_BUFFER_LOW = 32 * 1024;
+  String PATH_SERVER_WEBSOCKET_WRITE_BUFFER_HIGH = "server.websocket.write-buffer.high-water-mark";
+  Integer SERVER_WEBSOCKET_WRITE_BUFFER_HIGH = 64 * 1024;
+  String PATH_SERVER_WEBSOCKET_HEARTBEAT_INTERVAL = "server.websocket.heartbeat-interval";
+  Long SERVER_WEBSOCKET_HEARTBEAT_INTERVAL = 30000L;
+  String PATH_SERVER_WEBSOCKET_HEARTBEAT_TIMEOUT = "server.websocket.heartbeat-timeout";
+  Long SERVER_WEBSOCKET_HEARTBEAT_TIMEOUT = 10000L;
+
   // app setting
   String PATH_APP_BANNER_TEXT = "app.banner.text";
   String PATH_APP_BANNER_FONT = "app.banner.font";
@@ -0,0 +1,107 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.server;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.compression.ZlibCodecFactory;
+import io.netty.handler.codec.compression.ZlibWrapper;
+import io.netty.handler.codec.http.*;
+import io.netty.util.AttributeKey;
+import org.aquiver.mvc.annotation.Compress;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Gzip or deflate compression of the responses {@link CompressionPolicy}
+ * lets through, at the level it picks, with the compressed bytes and the
+ * time spent counted in {@link CompressionStats}.
+ * <p>
+ * The route of the current request hands its {@link Compress} override
+ * over in the {@link #ROUTE_COMPRESS} channel attribute.
+ *
+ * @author WangYi
+ * @since 2020/9/5
+ */
+public final class ContentCompressor extends HttpContentCompressor {
+  public static final AttributeKey<Compress> ROUTE_COMPRESS = AttributeKey.valueOf("aquiver.route.compress");
+
+  private static final int WINDOW_BITS = 15;
+  private static final int MEM_LEVEL = 8;
+
+  private final CompressionPolicy policy;
+  private ChannelHandlerContext ctx;
+  private boolean compressing;
+
+  public ContentCompressor(CompressionPolicy policy) {
+    this.policy = Objects.requireNonNull(policy, "policy can't be null");
+  }
+
+  @Override
+  public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+    this.ctx = ctx;
+    super.handlerAdded(ctx);
+  }
+
+  @Override
+  protected Result beginEncode(HttpResponse response, String acceptEncoding) {
+    ZlibWrapper wrapper = determineWrapper(acceptEncoding);
+    if (Objects.isNull(wrapper)) {
+      return null;
+    }
+    int level = policy.level(response, ctx.channel().attr(ROUTE_COMPRESS).get());
+    if (level <= 0) {
+      return null;
+    }
+    this.compressing = true;
+    String contentEncoding = wrapper == ZlibWrapper.GZIP
+            ? HttpHeaderValues.GZIP.toString() : HttpHeaderValues.DEFLATE.toString();
+    return new Result(contentEncoding, new EmbeddedChannel(ctx.channel().id(),
+            ctx.channel().metadata().hasDisconnect(), ctx.channel().config(),
+            ZlibCodecFactory.newZlibEncoder(wrapper, level, WINDOW_BITS, MEM_LEVEL)));
+  }
+
+  @Override
+  protected void encode(ChannelHandlerContext ctx, HttpObject msg, List<Object> out) throws Exception {
+    final long in = msg instanceof HttpContent ? ((HttpContent) msg).content().readableBytes() : 0;
+    final int from = out.size();
+    final long start = System.nanoTime();
+    super.encode(ctx, msg, out);
+    if (!compressing) {
+      return;
+    }
+    long written = 0;
+    for (int i = from; i < out.size(); i++) {
+      Object encoded = out.get(i);
+      if (encoded instanceof HttpContent) {
+        written += ((HttpContent) encoded).content().readableBytes();
+      }
+    }
+    policy.stats().encoded(in, written, System.nanoTime() - start);
+    if (msg instanceof LastHttpContent) {
+      this.compressing = false;
+    }
+  }
+}
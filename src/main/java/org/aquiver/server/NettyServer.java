@@ -37,22 +37,29 @@ import org.aquiver.Aquiver;
 import org.aquiver.ResultHandlerResolver;
 import org.aquiver.ViewHandlerResolver;
 import org.aquiver.WebInitializer;
+import org.aquiver.cache.CacheManager;
 import org.aquiver.handler.annotation.RouteAdvice;
 import org.aquiver.mvc.annotation.Path;
 import org.aquiver.mvc.annotation.RestPath;
 import org.aquiver.mvc.argument.AnnotationArgumentGetterResolver;
 import org.aquiver.mvc.argument.ArgumentGetterResolver;
+import org.aquiver.mvc.cache.ResponseCache;
+import org.aquiver.mvc.router.RestfulRouter;
+import org.aquiver.mvc.router.views.PebbleEngineKit;
 import org.aquiver.server.banner.Banner;
 import org.aquiver.server.watcher.GlobalEnvListener;
 import org.aquiver.server.watcher.GlobalEnvTask;
+import org.aquiver.server.watcher.TemplateWatcherListener;
 import org.aquiver.utils.SystemUtils;
 import org.aquiver.websocket.WebSocket;
+import org.aquiver.websocket.WebSocketRooms;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.net.ssl.SSLException;
 import java.io.File;
 import java.lang.annotation.Annotation;
+import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.security.cert.CertificateException;
 import java.util.ArrayList;
@@ -167,10 +174,20 @@ public class NettyServer implements Server {
     apexContext.addBean(ViewHandlerResolver.class);
     apexContext.addBean(ArgumentGetterResolver.class);
     apexContext.addBean(AnnotationArgumentGetterResolver.class);
+    apexContext.addBean(ResponseCache.class);
+    apexContext.addBean(StaticAssetIndex.class);
+    apexContext.addBean(CompressionPolicy.class);
+    apexContext.addBean(WebSocketRooms.class);
 
     apexContext.registerBeanDefinitions(loadResult);
     final Map<String, Object> instances = apexContext.getInstances();
+    apexContext.addBean(CacheManager.class).weave(instances);
     WebInitializer.initialize(instances, aquiver);
+    apexContext.getBean(ResultHandlerResolver.class)
+            .bind(apexContext.getBean(RestfulRouter.class).getRoutes().values());
+    if (this.environment.getBoolean(PATH_SERVER_TEMPLATE_PRECOMPILE, SERVER_TEMPLATE_PRECOMPILE)) {
+      PebbleEngineKit.precompile(this.aquiver.templateFolder());
+    }
   }
 
   /**
@@ -289,6 +306,7 @@ public class NettyServer implements Server {
       if (Objects.nonNull(workerGroup)) {
         this.workerGroup.shutdownGracefully();
       }
+      TimerKit.stop();
       log.info("The netty service is gracefully closed");
     } catch(Exception e) {
       log.error("An exception occurred while the Netty Http service was down", e);
@@ -315,6 +333,11 @@ public class NettyServer implements Server {
       log.info("start application watcher");
       final GlobalEnvListener fileListener = new GlobalEnvListener();
       GlobalEnvTask.config().watchPath(SERVER_WATCHER_PATH).listener(fileListener).start();
+
+      final java.nio.file.Path templatesPath = SERVER_WATCHER_PATH.resolve(this.aquiver.templateFolder());
+      if (Files.isDirectory(templatesPath)) {
+        GlobalEnvTask.config().watchPath(templatesPath).listener(new TemplateWatcherListener()).start();
+      }
     }
   }
 
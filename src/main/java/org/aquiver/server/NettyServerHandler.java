@@ -27,11 +27,14 @@ import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.handler.codec.http.*;
+import io.netty.util.Attribute;
 import org.apex.ApexContext;
 import org.aquiver.*;
 import org.aquiver.handler.ErrorHandlerResolver;
 import org.aquiver.mvc.RequestResult;
+import org.aquiver.mvc.annotation.Compress;
 import org.aquiver.mvc.argument.MethodArgumentGetter;
+import org.aquiver.mvc.cache.ResponseCache;
 import org.aquiver.mvc.interceptor.AspectInterceptorChain;
 import org.aquiver.mvc.interceptor.Interceptor;
 import org.aquiver.mvc.router.PathVarMatcher;
@@ -60,6 +63,7 @@ public class NettyServerHandler extends SimpleChannelInboundHandler<Object> {
   private final RestfulRouter restfulRouter;
   private final ErrorHandlerResolver errorHandlerResolver;
   private final ResultHandlerResolver resultHandlerResolver;
+  private final ResponseCache responseCache;
   private final MethodHandles.Lookup lookup = MethodHandles.lookup();
   private final ApexContext context = ApexContext.of();
 
@@ -68,6 +72,7 @@ public class NettyServerHandler extends SimpleChannelInboundHandler<Object> {
     this.errorHandlerResolver = context.getBean(ErrorHandlerResolver.class);
     this.restfulRouter = context.getBean(RestfulRouter.class);
     this.resultHandlerResolver = context.getBean(ResultHandlerResolver.class);
+    this.responseCache = context.getBean(ResponseCache.class);
   }
 
   @Override
@@ -80,6 +85,14 @@ public class NettyServerHandler extends SimpleChannelInboundHandler<Object> {
     ctx.flush();
   }
 
+  @Override
+  public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+    if (Objects.nonNull(requestContext)) {
+      requestContext.response().writabilityChanged();
+    }
+    super.channelWritabilityChanged(ctx);
+  }
+
   @Override
   public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
     log.error("An exception occurred when calling the mapping method", cause);
@@ -105,27 +118,55 @@ public class NettyServerHandler extends SimpleChannelInboundHandler<Object> {
     }
     try {
       this.requestContext = this.buildRequestContext(request, ctx);
+      final Attribute<Compress> compress = ctx.channel().attr(ContentCompressor.ROUTE_COMPRESS);
+      compress.set(null);
       final RouteInfo routeInfo = lookupRoute(requestContext);
+      if (Objects.isNull(routeInfo)) {
+        // answered with a static file
+        return;
+      }
+      compress.set(routeInfo.getCompress());
       requestContext.route(routeInfo);
-
-      final List<Interceptor> interceptors = Aquiver.interceptors();
-      final AspectInterceptorChain interceptorChain = new AspectInterceptorChain(interceptors, requestContext);
-      interceptorChain.invoke();
-
-      final RequestResult result = interceptorChain.getResult();
-      if (Objects.nonNull(result)) {
-        ResultHandler handler = resultHandlerResolver.lookup(result);
-        if (Objects.isNull(handler)) {
-          throw new IllegalStateException("Unsupported result class: " + result.getResultType().getSimpleName());
-        } else {
-          handler.handle(requestContext, result);
-        }
+      if (responseCache.serve(requestContext, this::invokeParked)) {
+        return;
       }
+      invokeRoute(requestContext);
     } catch(Throwable throwable) {
       exceptionCaught(ctx, throwable);
     }
   }
 
+  private void invokeRoute(RequestContext requestContext) throws Throwable {
+    final List<Interceptor> interceptors = Aquiver.interceptors();
+    final AspectInterceptorChain interceptorChain = new AspectInterceptorChain(interceptors, requestContext);
+    interceptorChain.invoke();
+
+    final RequestResult result = interceptorChain.getResult();
+    if (Objects.nonNull(result) && !requestContext.response().isCommitted()) {
+      ResultHandler handler = resultHandlerResolver.lookup(requestContext.route(), result);
+      if (Objects.isNull(handler)) {
+        throw new IllegalStateException("Unsupported result class: " + result.getResultType().getSimpleName());
+      } else {
+        handler.handle(requestContext, result);
+      }
+    }
+  }
+
+  /**
+   * Run the route of a request the output cache parked and then let go,
+   * called on the request's event loop
+   *
+   * @param parked request context of this handler's channel
+   */
+  private void invokeParked(RequestContext parked) {
+    try {
+      this.context.addBean(new MethodArgumentGetter(parked));
+      invokeRoute(parked);
+    } catch(Throwable throwable) {
+      exceptionCaught(parked.request().channelHandlerContext(), throwable);
+    }
+  }
+
   private RequestContext buildRequestContext(FullHttpRequest request, ChannelHandlerContext ctx) {
     RequestContext requestContext = new RequestContext(request, ctx);
     MethodArgumentGetter methodArgumentGetter = new MethodArgumentGetter(requestContext);
@@ -26,18 +26,23 @@ package org.aquiver.server;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.handler.codec.http.HttpContentCompressor;
+import io.netty.handler.codec.http.HttpObjectAggregator;
 import io.netty.handler.codec.http.HttpServerCodec;
-import io.netty.handler.codec.http.HttpServerExpectContinueHandler;
 import io.netty.handler.codec.http.cors.CorsConfig;
 import io.netty.handler.codec.http.cors.CorsConfigBuilder;
 import io.netty.handler.codec.http.cors.CorsHandler;
 import io.netty.handler.ssl.SslContext;
+import io.netty.handler.stream.ChunkedWriteHandler;
+import org.apex.ApexContext;
+import org.apex.Environment;
 import org.aquiver.Aquiver;
-import org.aquiver.websocket.WebSocketHandler;
+import org.aquiver.websocket.WebSocketResolver;
+import org.aquiver.websocket.WebSocketUpgradeHandler;
 
 import java.util.Objects;
 
+import static org.aquiver.server.Const.*;
+
 /**
  * @author WangYi
  * @since 2019/6/5
@@ -45,9 +50,26 @@ import java.util.Objects;
 public class NettyServerInitializer extends ChannelInitializer<SocketChannel> {
   private final SslContext sslCtx;
   private final Aquiver aquiver = Aquiver.of();
+  private final CompressionPolicy compressionPolicy;
+  private final int maxContentLength;
+  private final boolean decompression;
+  private final long maxInflatedSize;
+  private final int maxInflationRatio;
+  private final WebSocketUpgradeHandler webSocketUpgradeHandler;
 
   NettyServerInitializer(SslContext sslCtx) {
     this.sslCtx = sslCtx;
+    final Environment environment = aquiver.environment();
+    this.maxContentLength = environment.getInt(PATH_SERVER_REQUEST_MAX_CONTENT_LENGTH, SERVER_REQUEST_MAX_CONTENT_LENGTH);
+    this.decompression = environment.getBoolean(PATH_SERVER_REQUEST_DECOMPRESSION, SERVER_REQUEST_DECOMPRESSION);
+    this.maxInflatedSize = environment.getLong(PATH_SERVER_REQUEST_MAX_INFLATED_SIZE, SERVER_REQUEST_MAX_INFLATED_SIZE);
+    this.maxInflationRatio = environment.getInt(PATH_SERVER_REQUEST_MAX_INFLATION_RATIO, SERVER_REQUEST_MAX_INFLATION_RATIO);
+    this.compressionPolicy = aquiver.gzip()
+            ? ApexContext.of().getBean(CompressionPolicy.class) : null;
+    final WebSocketResolver webSocketResolver = ApexContext.of().getBean(WebSocketResolver.class);
+    this.webSocketUpgradeHandler = webSocketResolver.isEmpty()
+            ? null : new WebSocketUpgradeHandler(webSocketResolver, environment
+            .getInt(PATH_SERVER_WEBSOCKET_MAX_MESSAGE_SIZE, SERVER_WEBSOCKET_MAX_MESSAGE_SIZE));
   }
 
   /**
@@ -66,12 +88,18 @@ public class NettyServerInitializer extends ChannelInitializer<SocketChannel> {
               .allowNullOrigin().allowCredentials().build();
       channelPipeline.addLast(new CorsHandler(corsConfig));
     }
-    if (aquiver.gzip()) {
-      channelPipeline.addLast(new HttpContentCompressor());
-    }
     channelPipeline.addLast(new HttpServerCodec());
-    channelPipeline.addLast(new HttpServerExpectContinueHandler());
-    channelPipeline.addLast(new WebSocketHandler());
+    if (decompression) {
+      channelPipeline.addLast(new RequestDecompressor(maxInflatedSize, maxInflationRatio));
+    }
+    channelPipeline.addLast(new HttpObjectAggregator(maxContentLength));
+    if (Objects.nonNull(compressionPolicy)) {
+      channelPipeline.addLast(new ContentCompressor(compressionPolicy));
+    }
+    channelPipeline.addLast(new ChunkedWriteHandler());
+    if (Objects.nonNull(webSocketUpgradeHandler)) {
+      channelPipeline.addLast(webSocketUpgradeHandler);
+    }
     channelPipeline.addLast(new NettyServerHandler());
   }
 }
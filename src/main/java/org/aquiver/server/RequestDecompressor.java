@@ -0,0 +1,118 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.server;
+
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.*;
+import io.netty.util.ReferenceCountUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Inflates gzip and deflate request bodies chunk by chunk as they arrive,
+ * so only the inflated body is aggregated. The compressed chunks are
+ * released as soon as they are inflated.
+ * <p>
+ * A body inflating beyond {@code server.request.max-inflated-size} bytes,
+ * or beyond {@code server.request.max-inflation-ratio} times its compressed
+ * size once it passed a megabyte, is answered with 413 and the connection
+ * is closed.
+ *
+ * @author WangYi
+ * @since 2020/9/5
+ */
+public final class RequestDecompressor extends HttpContentDecompressor {
+  private static final Logger log = LoggerFactory.getLogger(RequestDecompressor.class);
+
+  /** Small bodies such as repetitive json legitimately inflate a lot. */
+  private static final long RATIO_FLOOR = 1024 * 1024;
+
+  private final long maxInflatedSize;
+  private final int maxRatio;
+
+  private boolean inflating;
+  private boolean rejected;
+  private long compressedBytes;
+  private long inflatedBytes;
+
+  public RequestDecompressor(long maxInflatedSize, int maxRatio) {
+    this.maxInflatedSize = maxInflatedSize;
+    this.maxRatio = maxRatio;
+  }
+
+  @Override
+  protected void decode(ChannelHandlerContext ctx, HttpObject msg, List<Object> out) throws Exception {
+    if (rejected) {
+      return;
+    }
+    if (msg instanceof HttpRequest) {
+      String contentEncoding = ((HttpRequest) msg).headers().get(HttpHeaderNames.CONTENT_ENCODING);
+      this.inflating = Objects.nonNull(contentEncoding)
+              && !HttpHeaderValues.IDENTITY.contentEqualsIgnoreCase(contentEncoding.trim());
+      this.compressedBytes = 0;
+      this.inflatedBytes = 0;
+    }
+    if (!inflating) {
+      super.decode(ctx, msg, out);
+      return;
+    }
+    if (msg instanceof HttpContent) {
+      compressedBytes += ((HttpContent) msg).content().readableBytes();
+    }
+    final int from = out.size();
+    super.decode(ctx, msg, out);
+    for (int i = from; i < out.size(); i++) {
+      Object decoded = out.get(i);
+      if (decoded instanceof HttpContent) {
+        inflatedBytes += ((HttpContent) decoded).content().readableBytes();
+      }
+    }
+    if (inflatedBytes > maxInflatedSize
+            || (inflatedBytes > RATIO_FLOOR && inflatedBytes > compressedBytes * maxRatio)) {
+      List<Object> inflated = out.subList(from, out.size());
+      inflated.forEach(ReferenceCountUtil::release);
+      inflated.clear();
+      this.reject(ctx);
+      return;
+    }
+    if (msg instanceof LastHttpContent) {
+      this.inflating = false;
+    }
+  }
+
+  private void reject(ChannelHandlerContext ctx) {
+    this.rejected = true;
+    log.warn("Reject request body from {}: {} bytes inflated from {}",
+            ctx.channel().remoteAddress(), inflatedBytes, compressedBytes);
+    FullHttpResponse response = new DefaultFullHttpResponse(
+            HttpVersion.HTTP_1_1, HttpResponseStatus.REQUEST_ENTITY_TOO_LARGE);
+    response.headers().set(HttpHeaderNames.CONTENT_LENGTH, 0);
+    response.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.CLOSE);
+    ctx.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
+  }
+}
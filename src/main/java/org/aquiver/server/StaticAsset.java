@@ -0,0 +1,218 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Metadata of one static file, recorded when the static folders are indexed.
+ * <p>
+ * The entity tag is strong and built from the length, modification time and
+ * content coding, so it changes whenever the bytes can have changed. A file
+ * whose name carries a content hash, such as {@code app.3f9c2a1b.js}, never
+ * changes under its name and is cached as immutable.
+ *
+ * @author WangYi
+ * @since 2020/9/5
+ */
+public final class StaticAsset {
+  private static final Pattern FINGERPRINT = Pattern.compile("[.-][0-9a-fA-F]{8,}\\.[^/]*$");
+  private static final Pattern ZERO_QUALITY = Pattern.compile("q\\s*=\\s*0(\\.0*)?");
+
+  private final String name;
+  private final URL url;
+  private final Path file;
+  private final long length;
+  private final long lastModified;
+  private final String contentType;
+  private final String contentEncoding;
+  private final String eTag;
+  private final boolean immutable;
+  private Map<String, StaticAsset> variants = Collections.emptyMap();
+
+  /**
+   * @param name         classpath resource name
+   * @param url          resource url
+   * @param file         file on disk, null when the resource lives in a jar
+   * @param length       size in bytes
+   * @param lastModified last modification time in milliseconds
+   * @param contentType  content type
+   */
+  StaticAsset(String name, URL url, Path file, long length, long lastModified, String contentType) {
+    this(name, url, file, length, lastModified, contentType, null);
+  }
+
+  /**
+   * @param name            classpath resource name
+   * @param url             resource url, null when the content is only held in memory
+   * @param file            file on disk, null when the resource lives in a jar
+   * @param length          size in bytes
+   * @param lastModified    last modification time in milliseconds
+   * @param contentType     content type of the decoded content
+   * @param contentEncoding content coding such as gzip, null for none
+   */
+  StaticAsset(String name, URL url, Path file, long length, long lastModified,
+              String contentType, String contentEncoding) {
+    this.name = name;
+    this.url = url;
+    this.file = file;
+    this.length = length;
+    this.lastModified = lastModified;
+    this.contentType = contentType;
+    this.contentEncoding = contentEncoding;
+    this.eTag = "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified)
+            + (Objects.isNull(contentEncoding) ? "" : "-" + contentEncoding) + "\"";
+    this.immutable = FINGERPRINT.matcher(name).find();
+  }
+
+  /**
+   * Add a compressed version of this file
+   *
+   * @param variant compressed file
+   */
+  synchronized void addVariant(StaticAsset variant) {
+    Map<String, StaticAsset> copy = new LinkedHashMap<>(variants);
+    copy.put(variant.contentEncoding(), variant);
+    this.variants = Collections.unmodifiableMap(copy);
+  }
+
+  public String name() {
+    return name;
+  }
+
+  public URL url() {
+    return url;
+  }
+
+  /**
+   * @return file on disk, null when the resource lives in a jar
+   */
+  public Path file() {
+    return file;
+  }
+
+  public boolean isFile() {
+    return Objects.nonNull(file);
+  }
+
+  public long length() {
+    return length;
+  }
+
+  public long lastModified() {
+    return lastModified;
+  }
+
+  public String contentType() {
+    return contentType;
+  }
+
+  /**
+   * @return content coding such as gzip, null for none
+   */
+  public String contentEncoding() {
+    return contentEncoding;
+  }
+
+  public String eTag() {
+    return eTag;
+  }
+
+  /**
+   * @return true if the name carries a content hash
+   */
+  public boolean isImmutable() {
+    return immutable;
+  }
+
+  /**
+   * @return compressed versions by content coding
+   */
+  public Map<String, StaticAsset> variants() {
+    return variants;
+  }
+
+  /**
+   * Select the version to send for an Accept-Encoding header, br before gzip.
+   * A wildcard accepts every coding not refused with {@code q=0}.
+   *
+   * @param acceptEncoding Accept-Encoding header value, may be null
+   * @return compressed version or this
+   */
+  public StaticAsset select(String acceptEncoding) {
+    Map<String, StaticAsset> current = variants;
+    if (current.isEmpty() || Objects.isNull(acceptEncoding)) {
+      return this;
+    }
+    Set<String> accepted = new HashSet<>();
+    Set<String> refused = new HashSet<>();
+    for (String part : acceptEncoding.split(",")) {
+      String[] segments = part.split(";");
+      String coding = segments[0].trim().toLowerCase();
+      if (segments.length > 1 && ZERO_QUALITY.matcher(segments[1].trim()).matches()) {
+        refused.add(coding);
+      } else {
+        accepted.add(coding);
+      }
+    }
+    boolean wildcard = accepted.contains("*");
+    for (String coding : new String[]{"br", "gzip"}) {
+      if (current.containsKey(coding) && (accepted.contains(coding)
+              || (wildcard && !refused.contains(coding)))) {
+        return current.get(coding);
+      }
+    }
+    return this;
+  }
+
+  /**
+   * Open the content, read straight from the jar for jar resources
+   *
+   * @return content stream
+   * @throws IOException io exception
+   */
+  public InputStream openStream() throws IOException {
+    return url.openStream();
+  }
+
+  @Override
+  public String toString() {
+    return "StaticAsset{" +
+            "name='" + name + '\'' +
+            ", length=" + length +
+            ", contentType='" + contentType + '\'' +
+            ", contentEncoding='" + contentEncoding + '\'' +
+            '}';
+  }
+}
@@ -0,0 +1,354 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.server;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import io.netty.util.IllegalReferenceCountException;
+import org.apex.Environment;
+import org.aquiver.Aquiver;
+import org.aquiver.mvc.http.MediaType;
+import org.aquiver.mvc.http.MimeTypes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import static org.aquiver.server.Const.*;
+
+/**
+ * Index of the static files under the {@code server.static.folders} classpath
+ * folders, built once at startup from directories and jars alike. A file
+ * {@code static/css/app.css} is served as {@code /css/app.css} and, as
+ * before the index existed, as {@code /static/css/app.css}.
+ * <p>
+ * Files up to {@code server.static.cache.file-size} bytes are read into
+ * pooled direct buffers on first use and served from memory, until the
+ * cache holds {@code server.static.cache.max-bytes}. Larger files are sent
+ * from disk or streamed from their jar. While the env watcher is on the
+ * memory cache is off and the length and validators of a file are read
+ * again for every request, so edited files are seen; files added after
+ * startup need a restart.
+ * <p>
+ * A file with a {@code .gz} or {@code .br} sibling is sent compressed to
+ * clients that accept it. Compressible files without a gzip sibling are
+ * gzipped once at startup and the result is kept in memory, unless
+ * {@code server.static.precompress} is off.
+ *
+ * @author WangYi
+ * @since 2020/9/5
+ */
+public final class StaticAssetIndex {
+  private static final Logger log = LoggerFactory.getLogger(StaticAssetIndex.class);
+
+  /** Below this a gzip header and trailer eat most of the gain. */
+  private static final long PRECOMPRESS_MIN_SIZE = 256;
+
+  private final Map<String, StaticAsset> assets = new ConcurrentHashMap<>();
+  private final Map<StaticAsset, ByteBuf> contents = new ConcurrentHashMap<>();
+  /** Compressed at startup, these have no file to be read again from. */
+  private final Map<StaticAsset, ByteBuf> pinned = new ConcurrentHashMap<>();
+  private final AtomicLong cachedBytes = new AtomicLong();
+  private final long cacheFileSize;
+  private final long cacheMaxBytes;
+  private final boolean devMode;
+
+  public StaticAssetIndex() {
+    final Environment environment = Aquiver.of().environment();
+    this.devMode = environment.getBoolean(PATH_ENV_WATCHER, false);
+    this.cacheFileSize = devMode ? -1 : environment.getLong(PATH_SERVER_STATIC_CACHE_FILE_SIZE, SERVER_STATIC_CACHE_FILE_SIZE);
+    this.cacheMaxBytes = environment.getLong(PATH_SERVER_STATIC_CACHE_MAX_BYTES, SERVER_STATIC_CACHE_MAX_BYTES);
+
+    final long start = System.currentTimeMillis();
+    for (String folder : environment.get(PATH_SERVER_STATIC_FOLDERS, SERVER_STATIC_FOLDERS).split(",")) {
+      folder = folder.trim();
+      if (!folder.isEmpty()) {
+        this.index(folder);
+      }
+    }
+    this.linkVariants();
+    if (!devMode && environment.getBoolean(PATH_SERVER_STATIC_PRECOMPRESS, SERVER_STATIC_PRECOMPRESS)) {
+      this.precompress();
+    }
+    log.info("Indexed {} static files in {}ms", assets.size(), System.currentTimeMillis() - start);
+  }
+
+  /**
+   * Find the static file of a request uri
+   *
+   * @param uri request uri, may carry a query string
+   * @return static file or null
+   */
+  public StaticAsset lookup(String uri) {
+    String path = new QueryStringDecoder(uri).path();
+    return assets.get(path);
+  }
+
+  /**
+   * The file as it is on disk now. Outside dev mode files don't change under
+   * a running server and the indexed asset is returned as is.
+   *
+   * @param asset static file
+   * @return asset with the current length and validators, null when the
+   * file was deleted
+   */
+  public StaticAsset current(StaticAsset asset) {
+    if (!devMode || !asset.isFile()) {
+      return asset;
+    }
+    try {
+      long length = Files.size(asset.file());
+      long lastModified = Files.getLastModifiedTime(asset.file()).toMillis();
+      if (length == asset.length() && lastModified == asset.lastModified()) {
+        return asset;
+      }
+      return new StaticAsset(asset.name(), asset.url(), asset.file(), length,
+              lastModified, asset.contentType(), asset.contentEncoding());
+    } catch(IOException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Content of a small file from memory, read on first use
+   *
+   * @param asset static file
+   * @return retained duplicate of the content the caller has to release,
+   * null when the file is not held in memory
+   * @throws IOException io exception while reading the file
+   */
+  public ByteBuf content(StaticAsset asset) throws IOException {
+    ByteBuf content = pinned.get(asset);
+    if (Objects.nonNull(content)) {
+      return content.retainedDuplicate();
+    }
+    if (asset.length() > cacheFileSize) {
+      return null;
+    }
+    content = contents.get(asset);
+    if (Objects.isNull(content)) {
+      if (cachedBytes.addAndGet(asset.length()) > cacheMaxBytes) {
+        cachedBytes.addAndGet(-asset.length());
+        return null;
+      }
+      content = read(asset);
+      ByteBuf previous = contents.putIfAbsent(asset, content);
+      if (Objects.nonNull(previous)) {
+        cachedBytes.addAndGet(-asset.length());
+        content.release();
+        content = previous;
+      }
+    }
+    try {
+      return content.retainedDuplicate();
+    } catch(IllegalReferenceCountException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Drop the files held in memory
+   */
+  public void invalidate() {
+    for (StaticAsset asset : contents.keySet()) {
+      ByteBuf content = contents.remove(asset);
+      if (Objects.nonNull(content)) {
+        cachedBytes.addAndGet(-asset.length());
+        content.release();
+      }
+    }
+  }
+
+  public int size() {
+    return assets.size();
+  }
+
+  private ByteBuf read(StaticAsset asset) throws IOException {
+    ByteBuf content = PooledByteBufAllocator.DEFAULT.directBuffer((int) asset.length());
+    try (InputStream in = asset.openStream()) {
+      while (content.writeBytes(in, content.writableBytes()) > 0) {
+        // read to the end
+      }
+      return content.asReadOnly();
+    } catch(IOException e) {
+      content.release();
+      throw e;
+    }
+  }
+
+  /**
+   * Attach {@code x.gz} and {@code x.br} to {@code x}
+   */
+  private void linkVariants() {
+    Map<String, StaticAsset> byName = new HashMap<>();
+    for (StaticAsset asset : assets.values()) {
+      byName.put(asset.name(), asset);
+    }
+    for (StaticAsset asset : byName.values()) {
+      for (String coding : new String[]{"gzip", "br"}) {
+        String suffix = "gzip".equals(coding) ? ".gz" : ".br";
+        StaticAsset sibling = byName.get(asset.name() + suffix);
+        if (Objects.nonNull(sibling)) {
+          asset.addVariant(new StaticAsset(sibling.name(), sibling.url(), sibling.file(), sibling.length(),
+                  asset.lastModified(), asset.contentType(), coding));
+        }
+      }
+    }
+  }
+
+  /**
+   * Gzip the compressible files that have no gzip sibling, keep the result
+   * if it saves at least a tenth of the size
+   */
+  private void precompress() {
+    Set<StaticAsset> distinct = Collections.newSetFromMap(new IdentityHashMap<>());
+    distinct.addAll(assets.values());
+    long saved = 0;
+    for (StaticAsset asset : distinct) {
+      if (asset.variants().containsKey("gzip") || asset.length() < PRECOMPRESS_MIN_SIZE
+              || asset.length() > Integer.MAX_VALUE || !isCompressible(asset.contentType())) {
+        continue;
+      }
+      if (cachedBytes.get() + asset.length() > cacheMaxBytes) {
+        log.info("Static cache is full, skip precompressing the remaining files");
+        break;
+      }
+      try {
+        byte[] compressed = gzip(asset);
+        if (compressed.length > asset.length() * 9 / 10) {
+          continue;
+        }
+        ByteBuf content = PooledByteBufAllocator.DEFAULT.directBuffer(compressed.length).writeBytes(compressed);
+        StaticAsset variant = new StaticAsset(asset.name() + ".gz", null, null, compressed.length,
+                asset.lastModified(), asset.contentType(), "gzip");
+        pinned.put(variant, content.asReadOnly());
+        cachedBytes.addAndGet(compressed.length);
+        asset.addVariant(variant);
+        saved += asset.length() - compressed.length;
+      } catch(IOException e) {
+        log.warn("Precompress static file {} failed", asset.name(), e);
+      }
+    }
+    if (log.isDebugEnabled()) {
+      log.debug("precompress static files: {} bytes saved", saved);
+    }
+  }
+
+  private byte[] gzip(StaticAsset asset) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream((int) asset.length() / 2);
+    try (InputStream in = asset.openStream(); GZIPOutputStream gzip = new GZIPOutputStream(out) {
+      {
+        def.setLevel(Deflater.BEST_COMPRESSION);
+      }
+    }) {
+      byte[] buffer = new byte[8192];
+      int read;
+      while ((read = in.read(buffer)) != -1) {
+        gzip.write(buffer, 0, read);
+      }
+    }
+    return out.toByteArray();
+  }
+
+  private static boolean isCompressible(String contentType) {
+    return contentType.startsWith("text/") || contentType.contains("javascript")
+            || contentType.contains("json") || contentType.contains("xml")
+            || contentType.startsWith(MediaType.APPLICATION_WASM_VALUE);
+  }
+
+  private void index(String folder) {
+    try {
+      Enumeration<URL> roots = getClass().getClassLoader().getResources(folder);
+      while (roots.hasMoreElements()) {
+        URL root = roots.nextElement();
+        if ("jar".equals(root.getProtocol())) {
+          this.indexJar(folder, root);
+        } else if ("file".equals(root.getProtocol())) {
+          this.indexDirectory(folder, Paths.get(root.toURI()));
+        }
+      }
+    } catch(IOException | URISyntaxException e) {
+      log.warn("Index static folder {} failed", folder, e);
+    }
+  }
+
+  private void indexDirectory(String folder, Path root) throws IOException {
+    try (Stream<Path> paths = Files.walk(root)) {
+      paths.filter(Files::isRegularFile).forEach(path -> {
+        String relative = root.relativize(path).toString().replace('\\', '/');
+        try {
+          this.register(folder, relative, new StaticAsset(folder + "/" + relative, path.toUri().toURL(),
+                  path, Files.size(path), Files.getLastModifiedTime(path).toMillis(),
+                  MimeTypes.forFileName(relative)));
+        } catch(IOException e) {
+          log.warn("Index static file {} failed", path, e);
+        }
+      });
+    }
+  }
+
+  private void indexJar(String folder, URL root) throws IOException {
+    JarURLConnection connection = (JarURLConnection) root.openConnection();
+    connection.setUseCaches(false);
+    String prefix = folder + "/";
+    try (JarFile jarFile = connection.getJarFile()) {
+      Enumeration<JarEntry> entries = jarFile.entries();
+      while (entries.hasMoreElements()) {
+        JarEntry entry = entries.nextElement();
+        String name = entry.getName();
+        if (entry.isDirectory() || !name.startsWith(prefix)) {
+          continue;
+        }
+        String relative = name.substring(prefix.length());
+        URL url = new URL("jar:" + connection.getJarFileURL() + "!/" + name);
+        this.register(folder, relative, new StaticAsset(name, url, null, entry.getSize(),
+                entry.getTime(), MimeTypes.forFileName(relative)));
+      }
+    }
+  }
+
+  private void register(String folder, String relative, StaticAsset asset) {
+    if (Objects.isNull(assets.putIfAbsent("/" + relative, asset)) && log.isDebugEnabled()) {
+      log.debug("register StaticAsset: /{} -> {}", relative, asset.name());
+    }
+    assets.putIfAbsent("/" + folder + "/" + relative, asset);
+  }
+}
@@ -23,6 +23,7 @@
  */
 package org.aquiver.server;
 
+import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
@@ -30,18 +31,48 @@ import io.netty.channel.DefaultFileRegion;
 import io.netty.handler.codec.http.*;
 import io.netty.handler.ssl.SslHandler;
 import io.netty.handler.stream.ChunkedNioFile;
+import io.netty.handler.stream.ChunkedStream;
+import org.apex.ApexContext;
+import org.aquiver.Aquiver;
 import org.aquiver.RequestContext;
+import org.aquiver.mvc.http.ByteRanges;
+import org.aquiver.result.ConditionalRequests;
 
-import java.io.File;
-import java.io.RandomAccessFile;
-import java.net.URL;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
 import java.util.Objects;
 
+import static org.aquiver.server.Const.PATH_SERVER_STATIC_CACHE_CONTROL;
+import static org.aquiver.server.Const.SERVER_STATIC_CACHE_CONTROL;
+
 /**
+ * Serves the files of the {@link StaticAssetIndex}. Small files come from
+ * memory, files on disk are sent with zero-copy file regions, or chunked
+ * when the connection is encrypted, and jar entries are streamed straight
+ * from the jar.
+ * <p>
+ * The compressed version the client accepts is sent when there is one.
+ * Responses carry a strong ETag and Last-Modified, so revalidation is
+ * answered with 304. Fingerprinted files are cached for a year as immutable,
+ * everything else uses {@code server.static.cache-control}. Range requests
+ * are answered with the requested slices, see {@link ByteRanges}.
+ *
  * @author WangYi
  * @since 2020/5/28
  */
 public class StaticFileServerHandler {
+  private static final String IMMUTABLE_CACHE_CONTROL = "public, max-age=31536000, immutable";
+
+  private final StaticAssetIndex assetIndex;
+  private final String cacheControl;
+
+  public StaticFileServerHandler() {
+    this.assetIndex = ApexContext.of().getBean(StaticAssetIndex.class);
+    this.cacheControl = Aquiver.of().environment()
+            .get(PATH_SERVER_STATIC_CACHE_CONTROL, SERVER_STATIC_CACHE_CONTROL);
+  }
+
   private static void send100Continue(ChannelHandlerContext ctx) {
     FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.CONTINUE);
     ctx.writeAndFlush(response);
@@ -50,53 +81,104 @@ public class StaticFileServerHandler {
   public Boolean handle(RequestContext requestContext) throws Exception {
     FullHttpRequest request = requestContext.request().httpRequest();
     ChannelHandlerContext ctx = requestContext.request().channelHandlerContext();
-    String uri = request.uri();
-    if ("favicon.ico".equals(uri)) {
+    if (Objects.isNull(assetIndex)) {
       return false;
     }
-    URL resource = this.getClass().getClassLoader().getResource(uri.replaceFirst("/", ""));
-
-    if(Objects.isNull(resource)){
+    StaticAsset asset = assetIndex.lookup(request.uri());
+    if (Objects.isNull(asset)) {
       return false;
     }
 
-    File html = new File(resource.toURI());
-
     if (HttpUtil.is100ContinueExpected(request)) {
       send100Continue(ctx);
     }
 
-    try (RandomAccessFile file = new RandomAccessFile(html, "r")) {
-      HttpResponse response = new DefaultHttpResponse(request.protocolVersion(), HttpResponseStatus.OK);
-
-      if (uri.endsWith(".html")) {
-        response.headers().set(HttpHeaderNames.CONTENT_TYPE, "text/html; charset=UTF-8");
-      } else if (uri.endsWith(".js")) {
-        response.headers().set(HttpHeaderNames.CONTENT_TYPE, "application/x-javascript");
-      } else if (uri.endsWith(".css")) {
-        response.headers().set(HttpHeaderNames.CONTENT_TYPE, "text/css; charset=UTF-8");
+    StaticAsset selected = assetIndex.current(asset.select(request.headers().get(HttpHeaderNames.ACCEPT_ENCODING)));
+    if (Objects.isNull(selected)) {
+      return false;
+    }
+    boolean keepAlive = HttpUtil.isKeepAlive(request);
+    HttpResponse response;
+    if (ConditionalRequests.isNotModified(request, selected.eTag(), selected.lastModified())) {
+      response = new DefaultHttpResponse(request.protocolVersion(), HttpResponseStatus.NOT_MODIFIED);
+    } else {
+      response = new DefaultHttpResponse(request.protocolVersion(), HttpResponseStatus.OK);
+      response.headers().set(HttpHeaderNames.CONTENT_TYPE, selected.contentType());
+      response.headers().set(HttpHeaderNames.CONTENT_LENGTH, selected.length());
+      if (Objects.nonNull(selected.contentEncoding())) {
+        response.headers().set(HttpHeaderNames.CONTENT_ENCODING, selected.contentEncoding());
       }
+    }
+    this.cacheHeaders(response.headers(), asset, selected);
+    if (keepAlive) {
+      response.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.KEEP_ALIVE);
+    }
 
-      boolean keepAlive = HttpUtil.isKeepAlive(request);
-
-      if (keepAlive) {
-        response.headers().set(HttpHeaderNames.CONTENT_LENGTH, file.length());
-        response.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.KEEP_ALIVE);
-      }
+    if (!response.status().equals(HttpResponseStatus.OK) || HttpMethod.HEAD.equals(request.method())) {
+      ctx.write(response);
+    } else if (!this.writeRanges(ctx, request, response, selected)) {
       ctx.write(response);
+      this.writeContent(ctx, selected);
+    }
 
-      if (ctx.pipeline().get(SslHandler.class) == null) {
-        ctx.write(new DefaultFileRegion(file.getChannel(), 0, file.length()));
-      } else {
-        ctx.write(new ChunkedNioFile(file.getChannel()));
-      }
+    ChannelFuture future = ctx.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT);
+    if (!keepAlive) {
+      future.addListener(ChannelFutureListener.CLOSE);
+    }
+    return true;
+  }
 
-      ChannelFuture future = ctx.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT);
-      if (!keepAlive) {
-        future.addListener(ChannelFutureListener.CLOSE);
+  /**
+   * Answer a range request, jar entries too large for memory are always sent whole
+   *
+   * @return true if the response was written
+   */
+  private boolean writeRanges(ChannelHandlerContext ctx, HttpRequest request,
+                              HttpResponse response, StaticAsset selected) throws Exception {
+    if (!ByteRanges.isRangeApplicable(request, selected.eTag(), selected.lastModified())) {
+      return false;
+    }
+    List<ByteRanges.ByteRange> ranges = ByteRanges.parse(
+            request.headers().get(HttpHeaderNames.RANGE), selected.length());
+    if (Objects.isNull(ranges)) {
+      return false;
+    }
+    ByteBuf content = assetIndex.content(selected);
+    if (Objects.nonNull(content)) {
+      try {
+        ByteRanges.write(ctx, response, ranges, selected.length(), selected.contentType(), ByteRanges.RangeBody.of(content));
+      } finally {
+        content.release();
       }
+      return true;
+    }
+    if (selected.isFile()) {
+      ByteRanges.write(ctx, response, ranges, selected.length(), selected.contentType(), ByteRanges.RangeBody.of(selected.file()));
+      return true;
     }
+    return false;
+  }
 
-    return true;
+  private void cacheHeaders(HttpHeaders headers, StaticAsset asset, StaticAsset selected) {
+    ConditionalRequests.setValidators(headers, selected.eTag(), selected.lastModified());
+    headers.set(HttpHeaderNames.CACHE_CONTROL, asset.isImmutable() ? IMMUTABLE_CACHE_CONTROL : cacheControl);
+    headers.set(HttpHeaderNames.ACCEPT_RANGES, HttpHeaderValues.BYTES);
+    if (!asset.variants().isEmpty()) {
+      headers.set(HttpHeaderNames.VARY, HttpHeaderNames.ACCEPT_ENCODING);
+    }
+  }
+
+  private void writeContent(ChannelHandlerContext ctx, StaticAsset asset) throws Exception {
+    ByteBuf content = assetIndex.content(asset);
+    if (Objects.nonNull(content)) {
+      ctx.write(new DefaultHttpContent(content));
+    } else if (!asset.isFile()) {
+      ctx.write(new ChunkedStream(asset.openStream()));
+    } else if (ctx.pipeline().get(SslHandler.class) == null) {
+      // the region opens the file lazily and closes it once transferred
+      ctx.write(new DefaultFileRegion(asset.file().toFile(), 0, asset.length()));
+    } else {
+      ctx.write(new ChunkedNioFile(FileChannel.open(asset.file(), StandardOpenOption.READ)));
+    }
   }
 }
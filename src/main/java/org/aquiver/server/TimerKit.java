@@ -0,0 +1,85 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.server;
+
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shared wheel timer for connection level timeouts such as heartbeats and
+ * parked requests. Scheduling and cancelling is O(1) and all timeouts share
+ * one thread, so tens of thousands of them cost only their task objects.
+ * <p>
+ * Tasks run on the timer thread and must not block, hand longer work to the
+ * channel's event loop.
+ *
+ * @author WangYi
+ * @since 2020/9/5
+ */
+public final class TimerKit {
+  private static final long TICK_DURATION_MILLIS = 100;
+  private static volatile Timer timer;
+
+  private TimerKit() {}
+
+  /**
+   * Get the shared timer, created on first use
+   *
+   * @return shared timer
+   */
+  public static Timer timer() {
+    Timer current = timer;
+    if (current == null) {
+      synchronized (TimerKit.class) {
+        current = timer;
+        if (current == null) {
+          current = new HashedWheelTimer(new NettyThreadFactory("wheel-timer@"),
+                  TICK_DURATION_MILLIS, TimeUnit.MILLISECONDS);
+          timer = current;
+        }
+      }
+    }
+    return current;
+  }
+
+  public static Timeout newTimeout(TimerTask task, long delay, TimeUnit unit) {
+    return timer().newTimeout(task, delay, unit);
+  }
+
+  /**
+   * Stop the shared timer, pending timeouts are dropped
+   */
+  public static void stop() {
+    synchronized (TimerKit.class) {
+      if (timer != null) {
+        timer.stop();
+        timer = null;
+      }
+    }
+  }
+}
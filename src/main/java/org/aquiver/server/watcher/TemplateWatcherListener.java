@@ -0,0 +1,62 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.server.watcher;
+
+import org.aquiver.mvc.router.views.PebbleEngineKit;
+import org.aquiver.result.view.HtmlTemplateViewHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+
+/**
+ * Drops the compiled and cached templates when a template file changes. New
+ * files only need the resolved view resources dropped, templates that failed
+ * to load are never cached.
+ *
+ * @author WangYi
+ * @since 2020/9/5
+ */
+public class TemplateWatcherListener implements WatcherListener {
+  private static final Logger log = LoggerFactory.getLogger(TemplateWatcherListener.class);
+
+  @Override
+  public void onCreate(Path file) {
+    HtmlTemplateViewHandler.invalidateResources();
+  }
+
+  @Override
+  public void onModify(Path file) {
+    log.info(file.getFileName() + " has been modify, reload templates");
+    PebbleEngineKit.invalidate();
+    HtmlTemplateViewHandler.invalidate();
+  }
+
+  @Override
+  public void onDelete(Path file) {
+    log.info(file.getFileName() + " has been deleted, reload templates");
+    PebbleEngineKit.invalidate();
+    HtmlTemplateViewHandler.invalidate();
+  }
+}
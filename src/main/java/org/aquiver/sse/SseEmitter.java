@@ -0,0 +1,227 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.sse;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.util.Timeout;
+import org.aquiver.Aquiver;
+import org.aquiver.server.TimerKit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.aquiver.server.Const.PATH_SERVER_SSE_HEARTBEAT;
+import static org.aquiver.server.Const.SERVER_SSE_HEARTBEAT;
+
+/**
+ * Open {@code text/event-stream} connection of one client. Returned from a
+ * route method, the connection stays open until {@link #complete()} is
+ * called or the client goes away.
+ * <pre>{@code
+ *  @GET("/clock")
+ *  public SseEmitter clock() {
+ *    SseEmitter emitter = new SseEmitter();
+ *    executor.scheduleAtFixedRate(() -> emitter.send(new Date()), 0, 1, SECONDS);
+ *    return emitter;
+ *  }
+ * }</pre>
+ * Events sent before the connection is open are kept and written once it is.
+ * A comment line is written as heartbeat when the connection was idle for
+ * {@code server.sse.heartbeat-interval} milliseconds, so proxies keep it open.
+ *
+ * @author WangYi
+ * @since 2020/9/5
+ */
+public class SseEmitter {
+  private static final Logger log = LoggerFactory.getLogger(SseEmitter.class);
+  private static final ByteBuf HEARTBEAT = Unpooled.unreleasableBuffer(
+          Unpooled.directBuffer().writeBytes(":\n\n".getBytes(StandardCharsets.US_ASCII)));
+
+  private final SseHub hub;
+  private final List<Runnable> closeCallbacks = new CopyOnWriteArrayList<>();
+  private List<SseEvent> pending = new ArrayList<>();
+  private volatile Channel channel;
+  private volatile long lastWriteNanos;
+  private volatile boolean completed;
+  private Timeout heartbeat;
+  private long heartbeatNanos;
+
+  public SseEmitter() {
+    this(null);
+  }
+
+  SseEmitter(SseHub hub) {
+    this.hub = hub;
+  }
+
+  /**
+   * Send data as an unnamed event
+   *
+   * @param data text or object written as json
+   * @return this
+   */
+  public SseEmitter send(Object data) {
+    return send(SseEvent.of(data));
+  }
+
+  /**
+   * Send an event to this client only
+   *
+   * @param event event
+   * @return this
+   */
+  public SseEmitter send(SseEvent event) {
+    Objects.requireNonNull(event, "event can't be null");
+    synchronized (this) {
+      if (Objects.isNull(channel)) {
+        if (!completed) {
+          pending.add(event);
+        }
+        return this;
+      }
+    }
+    Channel current = this.channel;
+    if (current.isActive()) {
+      write(event.encode(current.alloc()));
+    }
+    return this;
+  }
+
+  /**
+   * Finish the stream and close the connection
+   */
+  public void complete() {
+    Channel current;
+    synchronized (this) {
+      if (completed) {
+        return;
+      }
+      this.completed = true;
+      current = this.channel;
+    }
+    if (Objects.nonNull(current)) {
+      current.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT).addListener(ChannelFutureListener.CLOSE);
+    }
+  }
+
+  /**
+   * Register a callback run once the connection is closed
+   *
+   * @param callback close callback
+   */
+  public void onClose(Runnable callback) {
+    this.closeCallbacks.add(Objects.requireNonNull(callback, "callback can't be null"));
+  }
+
+  public boolean isOpen() {
+    Channel current = this.channel;
+    return !completed && Objects.nonNull(current) && current.isActive();
+  }
+
+  /**
+   * Bind the emitter to the channel after the response head was written,
+   * replays missed hub events and starts the heartbeat.
+   *
+   * @param channel     client channel
+   * @param lastEventId Last-Event-ID sent by a reconnecting client, may be null
+   */
+  void open(Channel channel, String lastEventId) {
+    List<SseEvent> queued;
+    boolean complete;
+    synchronized (this) {
+      if (Objects.nonNull(this.channel)) {
+        throw new IllegalStateException("SseEmitter is already open");
+      }
+      this.channel = channel;
+      queued = this.pending;
+      this.pending = null;
+      complete = this.completed;
+    }
+    channel.closeFuture().addListener(future -> closed());
+    this.lastWriteNanos = System.nanoTime();
+
+    if (Objects.nonNull(hub)) {
+      hub.join(channel, lastEventId);
+    }
+    for (SseEvent event : queued) {
+      write(event.encode(channel.alloc()));
+    }
+    if (complete) {
+      channel.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT).addListener(ChannelFutureListener.CLOSE);
+      return;
+    }
+
+    long interval = Aquiver.of().environment().getLong(PATH_SERVER_SSE_HEARTBEAT, SERVER_SSE_HEARTBEAT);
+    if (interval > 0) {
+      this.heartbeatNanos = TimeUnit.MILLISECONDS.toNanos(interval);
+      scheduleHeartbeat(interval);
+    }
+  }
+
+  private void write(ByteBuf frame) {
+    this.lastWriteNanos = System.nanoTime();
+    this.channel.writeAndFlush(frame, channel.voidPromise());
+  }
+
+  private synchronized void scheduleHeartbeat(long delayMillis) {
+    if (!isOpen()) {
+      return;
+    }
+    this.heartbeat = TimerKit.newTimeout(timeout -> {
+      long lastWrite = Objects.isNull(hub) ? lastWriteNanos : Math.max(lastWriteNanos, hub.lastPublishNanos());
+      long idle = System.nanoTime() - lastWrite;
+      if (idle >= heartbeatNanos) {
+        write(HEARTBEAT.duplicate());
+        idle = 0;
+      }
+      scheduleHeartbeat(TimeUnit.NANOSECONDS.toMillis(heartbeatNanos - idle));
+    }, delayMillis, TimeUnit.MILLISECONDS);
+  }
+
+  private void closed() {
+    synchronized (this) {
+      this.completed = true;
+      if (Objects.nonNull(heartbeat)) {
+        heartbeat.cancel();
+      }
+    }
+    for (Runnable callback : closeCallbacks) {
+      try {
+        callback.run();
+      } catch(Exception e) {
+        log.error("An exception occurred when calling the sse close callback", e);
+      }
+    }
+  }
+}
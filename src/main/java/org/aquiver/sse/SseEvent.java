@@ -0,0 +1,163 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.sse;
+
+import com.alibaba.fastjson.JSON;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+
+import java.util.Objects;
+
+/**
+ * One server-sent event, encoded as a {@code text/event-stream} frame.
+ * <p>
+ * Text data is sent as is, any other object is written as json.
+ *
+ * @author WangYi
+ * @since 2020/9/5
+ */
+public final class SseEvent {
+  private String id;
+  private String event;
+  private long retry = -1;
+  private final Object data;
+
+  private SseEvent(Object data) {
+    this.data = data;
+  }
+
+  public static SseEvent of(Object data) {
+    return new SseEvent(data);
+  }
+
+  /**
+   * Id of the event, sent back by a reconnecting client as {@code Last-Event-ID}
+   *
+   * @param id event id, without line breaks or NUL
+   * @return this
+   * @throws IllegalArgumentException if the id would break the frame or be
+   *                                  ignored by the client
+   */
+  public SseEvent id(String id) {
+    if (Objects.nonNull(id) && id.indexOf('\0') >= 0) {
+      throw new IllegalArgumentException("SSE event id can't contain NUL");
+    }
+    this.id = checkLine("id", id);
+    return this;
+  }
+
+  /**
+   * Type of the event
+   *
+   * @param event event type, without line breaks
+   * @return this
+   * @throws IllegalArgumentException if the type would break the frame
+   */
+  public SseEvent event(String event) {
+    this.event = checkLine("event", event);
+    return this;
+  }
+
+  /**
+   * Reconnection delay the client should use
+   *
+   * @param retryMillis delay in milliseconds
+   * @return this
+   */
+  public SseEvent retry(long retryMillis) {
+    this.retry = retryMillis;
+    return this;
+  }
+
+  public String id() {
+    return id;
+  }
+
+  public String event() {
+    return event;
+  }
+
+  public Object data() {
+    return data;
+  }
+
+  /**
+   * Encode the event into a frame, multi line data is split into one
+   * {@code data:} field per line.
+   *
+   * @param allocator buffer allocator
+   * @return encoded frame
+   */
+  public ByteBuf encode(ByteBufAllocator allocator) {
+    StringBuilder frame = new StringBuilder(64);
+    if (Objects.nonNull(id)) {
+      field(frame, "id", id);
+    }
+    if (Objects.nonNull(event)) {
+      field(frame, "event", event);
+    }
+    if (retry >= 0) {
+      field(frame, "retry", String.valueOf(retry));
+    }
+    if (Objects.nonNull(data)) {
+      String text = data instanceof CharSequence ? data.toString() : JSON.toJSONString(data);
+      int start = 0;
+      for (int i = 0; i < text.length(); i++) {
+        char c = text.charAt(i);
+        if (c == '\n' || c == '\r') {
+          field(frame, "data", text.substring(start, i));
+          if (c == '\r' && i + 1 < text.length() && text.charAt(i + 1) == '\n') {
+            i++;
+          }
+          start = i + 1;
+        }
+      }
+      field(frame, "data", text.substring(start));
+    }
+    frame.append('\n');
+    return ByteBufUtil.writeUtf8(allocator, frame);
+  }
+
+  private static String checkLine(String name, String value) {
+    if (Objects.nonNull(value) && (value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0)) {
+      throw new IllegalArgumentException("SSE event " + name + " can't contain line breaks");
+    }
+    return value;
+  }
+
+  private static void field(StringBuilder frame, String name, String value) {
+    frame.append(name).append(": ").append(value).append('\n');
+  }
+
+  @Override
+  public String toString() {
+    return "SseEvent{" +
+            "id='" + id + '\'' +
+            ", event='" + event + '\'' +
+            ", retry=" + retry +
+            ", data=" + data +
+            '}';
+  }
+}
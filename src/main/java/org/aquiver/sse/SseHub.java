@@ -0,0 +1,194 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.sse;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.group.DefaultChannelGroup;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.util.concurrent.GlobalEventExecutor;
+
+import java.util.Objects;
+
+/**
+ * Broadcasts events to every subscribed client.
+ * <pre>{@code
+ *  private final SseHub prices = new SseHub();
+ *
+ *  @GET("/prices")
+ *  public SseEmitter prices() {
+ *    return prices.subscribe();
+ *  }
+ *
+ *  // anywhere else
+ *  prices.publish(quote);
+ * }</pre>
+ * An event is encoded once into a direct buffer, each subscriber gets a
+ * retained duplicate of it. The last {@code replayCapacity} events are kept,
+ * a client that reconnects with {@code Last-Event-ID} receives the ones it
+ * missed. The hub numbers its events, ids set on published events are
+ * replaced by that sequence.
+ * <p>
+ * Subscribers that are not writable when an event is published are closed
+ * rather than buffering without bound, the browser reconnects and resumes
+ * from the replay buffer.
+ *
+ * @author WangYi
+ * @since 2020/9/5
+ */
+public class SseHub {
+  private static final int DEFAULT_REPLAY_CAPACITY = 256;
+
+  private final ChannelGroup channels = new DefaultChannelGroup(GlobalEventExecutor.INSTANCE);
+  private final ByteBuf[] replayFrames;
+  private long sequence;
+  private int replaySize;
+  private volatile long lastPublishNanos = System.nanoTime();
+
+  public SseHub() {
+    this(DEFAULT_REPLAY_CAPACITY);
+  }
+
+  /**
+   * @param replayCapacity number of recent events kept for Last-Event-ID resume,
+   *                       0 disables resume
+   */
+  public SseHub(int replayCapacity) {
+    if (replayCapacity < 0) {
+      throw new IllegalArgumentException("replayCapacity can't be negative");
+    }
+    this.replayFrames = new ByteBuf[replayCapacity];
+  }
+
+  /**
+   * Create an emitter that joins this hub once the route returns it
+   *
+   * @return new emitter
+   */
+  public SseEmitter subscribe() {
+    return new SseEmitter(this);
+  }
+
+  /**
+   * Publish data as an unnamed event
+   *
+   * @param data text or object written as json
+   * @return id assigned to the event
+   */
+  public long publish(Object data) {
+    return publish(SseEvent.of(data));
+  }
+
+  /**
+   * Publish an event to all subscribers
+   *
+   * @param event event
+   * @return id assigned to the event
+   */
+  public synchronized long publish(SseEvent event) {
+    Objects.requireNonNull(event, "event can't be null");
+    long id = ++sequence;
+    event.id(String.valueOf(id));
+    ByteBuf frame = event.encode(PooledByteBufAllocator.DEFAULT);
+    remember(id, frame);
+
+    this.lastPublishNanos = System.nanoTime();
+    this.channels.close(channel -> !channel.isWritable());
+    // the group releases the frame once, keep the reference the replay buffer owns
+    this.channels.writeAndFlush(replayFrames.length > 0 ? frame.retain() : frame, Channel::isWritable, true);
+    return id;
+  }
+
+  /**
+   * Number of connected subscribers
+   *
+   * @return subscriber count
+   */
+  public int size() {
+    return channels.size();
+  }
+
+  /**
+   * Complete every subscriber and drop the replay buffer
+   */
+  public synchronized void close() {
+    this.channels.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT)
+            .addListener(future -> channels.close());
+    for (int i = 0; i < replaySize; i++) {
+      ByteBuf frame = replayFrames[slot(sequence - i)];
+      frame.release();
+    }
+    this.replaySize = 0;
+  }
+
+  long lastPublishNanos() {
+    return lastPublishNanos;
+  }
+
+  /**
+   * Replay the events after lastEventId and add the channel, both under the
+   * publish lock so no event is missed or sent twice.
+   */
+  synchronized void join(Channel channel, String lastEventId) {
+    long lastId = parseId(lastEventId);
+    if (lastId >= 0) {
+      long first = Math.max(lastId + 1, sequence - replaySize + 1);
+      for (long id = first; id <= sequence; id++) {
+        channel.write(replayFrames[slot(id)].retainedDuplicate());
+      }
+      channel.flush();
+    }
+    channels.add(channel);
+  }
+
+  private void remember(long id, ByteBuf frame) {
+    if (replayFrames.length == 0) {
+      return;
+    }
+    int slot = slot(id);
+    if (replaySize == replayFrames.length) {
+      replayFrames[slot].release();
+    } else {
+      replaySize++;
+    }
+    replayFrames[slot] = frame;
+  }
+
+  private int slot(long id) {
+    return (int) (id % replayFrames.length);
+  }
+
+  private static long parseId(String lastEventId) {
+    if (Objects.isNull(lastEventId) || lastEventId.isEmpty()) {
+      return -1;
+    }
+    try {
+      return Long.parseLong(lastEventId.trim());
+    } catch(NumberFormatException e) {
+      return -1;
+    }
+  }
+}
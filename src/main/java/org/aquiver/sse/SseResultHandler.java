@@ -0,0 +1,66 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.sse;
+
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import org.aquiver.RequestContext;
+import org.aquiver.Response;
+import org.aquiver.ResultHandler;
+import org.aquiver.mvc.RequestResult;
+import org.aquiver.mvc.http.MediaType;
+
+import java.util.Objects;
+
+/**
+ * Keeps the connection of routes returning {@link SseEmitter} open as a
+ * {@code text/event-stream}.
+ *
+ * @author WangYi
+ * @since 2020/9/5
+ */
+public final class SseResultHandler implements ResultHandler {
+  private static final String LAST_EVENT_ID = "Last-Event-ID";
+
+  @Override
+  public boolean support(RequestResult requestResult) {
+    return SseEmitter.class.isAssignableFrom(requestResult.getResultType());
+  }
+
+  @Override
+  public void handle(RequestContext ctx, RequestResult result) {
+    Response response = ctx.response();
+    response.header(HttpHeaderNames.CACHE_CONTROL, HttpHeaderValues.NO_CACHE)
+            .header("X-Accel-Buffering", "no")
+            .writeHead(MediaType.TEXT_EVENT_STREAM_VALUE);
+
+    SseEmitter emitter = (SseEmitter) result.getResultObject();
+    if (Objects.isNull(emitter)) {
+      response.end();
+      return;
+    }
+    String lastEventId = ctx.request().headers().get(LAST_EVENT_ID);
+    emitter.open(ctx.request().channelHandlerContext().channel(), lastEventId);
+  }
+}
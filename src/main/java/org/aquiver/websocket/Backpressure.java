@@ -0,0 +1,82 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.websocket;
+
+import java.lang.annotation.*;
+
+/**
+ * Outbound limits of a {@link WebSocket} endpoint, endpoints without it use
+ * the {@code server.websocket.outbound.*} and
+ * {@code server.websocket.write-buffer.*} settings.
+ * <pre>{@code
+ *  @WebSocket("/quotes")
+ *  @Backpressure(policy = Backpressure.Policy.COALESCE, maxQueuedBytes = 256 * 1024)
+ *  public class QuoteSocket implements WebSocketChannel { ... }
+ * }</pre>
+ * Messages are written straight to a connection while it is writable. Once
+ * its outbound buffer passes the high water mark they wait in a queue of
+ * the connection, which is drained when the buffer falls below the low
+ * water mark again. The policy decides what happens when the queue is full.
+ *
+ * @author WangYi
+ * @since 2020/9/5
+ */
+@Target({ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface Backpressure {
+  Policy policy() default Policy.DISCONNECT;
+
+  /**
+   * Largest size in bytes of the queue of a connection, -1 for the server setting
+   */
+  int maxQueuedBytes() default -1;
+
+  /**
+   * Outbound buffer size in bytes at which a connection becomes writable
+   * again, -1 for the server setting
+   */
+  int lowWaterMark() default -1;
+
+  /**
+   * Outbound buffer size in bytes from which messages are queued, -1 for
+   * the server setting
+   */
+  int highWaterMark() default -1;
+
+  enum Policy {
+    /** The oldest queued messages are dropped to make room. */
+    DROP_OLDEST,
+    /** The new message is dropped. */
+    DROP_NEWEST,
+    /**
+     * A keyed message replaces the queued message with the same key, see
+     * {@link WebSocketContext#message(String, String)}, then the oldest
+     * messages are dropped to make room.
+     */
+    COALESCE,
+    /** The connection is closed. */
+    DISCONNECT
+  }
+}
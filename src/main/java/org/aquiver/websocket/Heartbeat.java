@@ -0,0 +1,58 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.websocket;
+
+import java.lang.annotation.*;
+
+/**
+ * Heartbeats of a {@link WebSocket} endpoint, endpoints without it use the
+ * {@code server.websocket.heartbeat-*} settings.
+ * <pre>{@code
+ *  @WebSocket("/chat")
+ *  @Heartbeat(interval = 20000, timeout = 5000)
+ *  public class ChatSocket implements WebSocketChannel { ... }
+ * }</pre>
+ * A connection that received nothing for an interval is sent a ping. When
+ * nothing, not even the pong, arrives within the timeout after it, the
+ * connection is closed and {@link WebSocketChannel#onClose} called.
+ *
+ * @author WangYi
+ * @since 2020/9/5
+ */
+@Target({ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface Heartbeat {
+  /**
+   * Idle time in milliseconds before a ping is sent, 0 disables heartbeats,
+   * -1 for the server setting
+   */
+  long interval() default -1;
+
+  /**
+   * Time in milliseconds to wait for the peer after a ping, -1 for the
+   * server setting
+   */
+  long timeout() default -1;
+}
@@ -0,0 +1,76 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.websocket;
+
+import java.lang.annotation.*;
+
+/**
+ * Offer permessage-deflate (RFC 7692) on a {@link WebSocket} endpoint.
+ * <pre>{@code
+ *  @WebSocket("/feed")
+ *  @PerMessageDeflate(minSize = 512, clientNoContextTakeover = true)
+ *  public class FeedSocket implements WebSocketChannel { ... }
+ * }</pre>
+ * Messages smaller than {@link #minSize()} are sent uncompressed. A client
+ * asking for {@code server_no_context_takeover} compresses every message on
+ * its own, {@link WebSocketRoom} broadcasts then compress a message once for
+ * all such members with the same window size.
+ *
+ * @author WangYi
+ * @since 2020/9/5
+ */
+@Target({ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface PerMessageDeflate {
+  /**
+   * Deflate level between 1 and 9
+   */
+  int level() default 6;
+
+  /**
+   * Smallest message in bytes that is compressed
+   */
+  int minSize() default 256;
+
+  /**
+   * Window bits asked of the client, between 8 and 15
+   */
+  int clientWindowBits() default 15;
+
+  /**
+   * Accept a smaller server window asked by the client
+   */
+  boolean allowServerWindowBits() default true;
+
+  /**
+   * Accept the client's request to compress every message on its own
+   */
+  boolean allowServerNoContextTakeover() default true;
+
+  /**
+   * Ask the client to compress every message on its own
+   */
+  boolean clientNoContextTakeover() default false;
+}
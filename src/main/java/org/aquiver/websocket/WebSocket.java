@@ -34,4 +34,17 @@ import java.lang.annotation.*;
 @Documented
 public @interface WebSocket {
   String value() default "";
+
+  /**
+   * Lifetime of an endpoint declared with action annotations, endpoints
+   * implementing {@link WebSocketChannel} are always singletons
+   */
+  Scope scope() default Scope.SINGLETON;
+
+  enum Scope {
+    /** One instance created by the container serves every connection. */
+    SINGLETON,
+    /** Every connection gets its own instance from the no-arg constructor. */
+    CONNECTION
+  }
 }
@@ -0,0 +1,177 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.websocket;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.compression.ZlibCodecFactory;
+import io.netty.handler.codec.compression.ZlibWrapper;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import io.netty.handler.codec.http.websocketx.extensions.*;
+import io.netty.handler.codec.http.websocketx.extensions.compression.PerMessageDeflateServerExtensionHandshaker;
+import io.netty.util.AttributeKey;
+
+import java.util.Objects;
+
+/**
+ * The permessage-deflate settings of one endpoint, see {@link PerMessageDeflate}.
+ *
+ * @author WangYi
+ * @since 2020/9/5
+ */
+public final class WebSocketCompression {
+  /** Set on connections whose messages can share compressed output. */
+  static final AttributeKey<SharedDeflate> SHARED_DEFLATE = AttributeKey.valueOf("aquiver.websocket.shared-deflate");
+
+  private static final String SERVER_NO_CONTEXT = "server_no_context_takeover";
+  private static final String SERVER_MAX_WINDOW = "server_max_window_bits";
+  private static final int MAX_WINDOW_BITS = 15;
+
+  private final int level;
+  private final int minSize;
+  private final WebSocketServerExtensionHandshaker handshaker;
+
+  WebSocketCompression(PerMessageDeflate config) {
+    Objects.requireNonNull(config, "config can't be null");
+    this.level = config.level();
+    this.minSize = config.minSize();
+    final WebSocketExtensionFilter skipSmall = frame -> frame.content().readableBytes() < minSize;
+    this.handshaker = new PerMessageDeflateServerExtensionHandshaker(level,
+            config.allowServerWindowBits(), config.clientWindowBits(),
+            config.allowServerNoContextTakeover(), config.clientNoContextTakeover(),
+            new WebSocketExtensionFilterProvider() {
+              @Override
+              public WebSocketExtensionFilter encoderFilter() {
+                return skipSmall;
+              }
+
+              @Override
+              public WebSocketExtensionFilter decoderFilter() {
+                return WebSocketExtensionFilter.NEVER_SKIP;
+              }
+            });
+  }
+
+  /**
+   * Extension handler negotiating permessage-deflate on a connection, it has
+   * to see the upgrade request and the handshake response
+   *
+   * @param channel connection being upgraded
+   * @return extension handler
+   */
+  WebSocketServerExtensionHandler newHandler(Channel channel) {
+    return new WebSocketServerExtensionHandler(data -> {
+      WebSocketServerExtension extension = handshaker.handshakeExtension(data);
+      if (Objects.nonNull(extension)) {
+        negotiated(channel, extension.newReponseData());
+      }
+      return extension;
+    });
+  }
+
+  private void negotiated(Channel channel, WebSocketExtensionData data) {
+    if (!data.parameters().containsKey(SERVER_NO_CONTEXT)) {
+      return;
+    }
+    String windowBits = data.parameters().get(SERVER_MAX_WINDOW);
+    channel.attr(SHARED_DEFLATE).set(new SharedDeflate(level,
+            Objects.isNull(windowBits) ? MAX_WINDOW_BITS : Integer.parseInt(windowBits), minSize));
+  }
+
+  /**
+   * Compression without context takeover, the output for a message only
+   * depends on these settings and can be sent to every connection that
+   * negotiated them
+   */
+  static final class SharedDeflate {
+    private static final int MEM_LEVEL = 8;
+    /** Trailer of a sync flush, left out of every message. */
+    private static final int FRAME_TAIL_LENGTH = 4;
+
+    private final int level;
+    private final int windowBits;
+    private final int minSize;
+
+    SharedDeflate(int level, int windowBits, int minSize) {
+      this.level = level;
+      this.windowBits = windowBits;
+      this.minSize = minSize;
+    }
+
+    boolean accepts(WebSocketFrame frame) {
+      return (frame instanceof TextWebSocketFrame || frame instanceof BinaryWebSocketFrame)
+              && frame.isFinalFragment() && (frame.rsv() & WebSocketExtension.RSV1) == 0
+              && frame.content().readableBytes() >= Math.max(minSize, 1);
+    }
+
+    /**
+     * Compress a whole message, the result carries RSV1 and passes the
+     * connection's own deflate encoder untouched
+     */
+    WebSocketFrame compress(WebSocketFrame frame) {
+      EmbeddedChannel encoder = new EmbeddedChannel(ZlibCodecFactory.newZlibEncoder(
+              ZlibWrapper.NONE, level, windowBits, MEM_LEVEL));
+      CompositeByteBuf compressed = PooledByteBufAllocator.DEFAULT.compositeBuffer();
+      try {
+        encoder.writeOutbound(frame.content().retainedDuplicate());
+        ByteBuf part;
+        while ((part = encoder.readOutbound()) != null) {
+          if (part.isReadable()) {
+            compressed.addComponent(true, part);
+          } else {
+            part.release();
+          }
+        }
+        compressed.writerIndex(compressed.writerIndex() - FRAME_TAIL_LENGTH);
+      } catch(RuntimeException e) {
+        compressed.release();
+        throw e;
+      } finally {
+        encoder.finishAndReleaseAll();
+      }
+      int rsv = frame.rsv() | WebSocketExtension.RSV1;
+      return frame instanceof TextWebSocketFrame
+              ? new TextWebSocketFrame(true, rsv, compressed)
+              : new BinaryWebSocketFrame(true, rsv, compressed);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+      SharedDeflate that = (SharedDeflate) o;
+      return level == that.level && windowBits == that.windowBits && minSize == that.minSize;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(level, windowBits, minSize);
+    }
+  }
+}
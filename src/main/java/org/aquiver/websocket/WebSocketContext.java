@@ -23,12 +23,17 @@
  */
 package org.aquiver.websocket;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
 import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
 import org.aquiver.RequestContext;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.concurrent.ThreadLocalRandom;
 
 /**
@@ -40,6 +45,7 @@ public class WebSocketContext extends RequestContext {
   private WebSocketChannel channel;
   private Message message;
   private Error error;
+  private Object endpoint;
 
   public WebSocketContext(FullHttpRequest httpRequest, ChannelHandlerContext context) {
     super(httpRequest, context);
@@ -56,6 +62,49 @@ public class WebSocketContext extends RequestContext {
             .writeAndFlush(new TextWebSocketFrame(message));
   }
 
+  /**
+   * Send a binary message, the buffer is released once written
+   *
+   * @param message message payload
+   */
+  public void message(ByteBuf message) {
+    this.session.channelHandlerContext()
+            .writeAndFlush(new BinaryWebSocketFrame(message));
+  }
+
+  /**
+   * Send a text message that replaces a queued message with the same key
+   * when the endpoint coalesces, see {@link Backpressure.Policy#COALESCE}
+   *
+   * @param key     message key, such as the id of the updated entity
+   * @param message message text
+   */
+  public void message(String key, String message) {
+    this.session.channelHandlerContext()
+            .writeAndFlush(WebSocketOutbound.keyed(key, new TextWebSocketFrame(message)));
+  }
+
+  /**
+   * Send a binary message that replaces a queued message with the same key
+   * when the endpoint coalesces, the buffer is released once written or
+   * replaced
+   *
+   * @param key     message key
+   * @param message message payload
+   */
+  public void message(String key, ByteBuf message) {
+    this.session.channelHandlerContext()
+            .writeAndFlush(WebSocketOutbound.keyed(key, new BinaryWebSocketFrame(message)));
+  }
+
+  public void message(ByteBuffer message) {
+    this.message(Unpooled.wrappedBuffer(message));
+  }
+
+  public void message(byte[] message) {
+    this.message(Unpooled.wrappedBuffer(message));
+  }
+
   public void setChannel(WebSocketChannel channel) {
     this.channel = channel;
   }
@@ -75,6 +124,17 @@ public class WebSocketContext extends RequestContext {
     return channel;
   }
 
+  /**
+   * Endpoint instance of a connection scoped websocket
+   */
+  Object endpoint() {
+    return endpoint;
+  }
+
+  void endpoint(Object endpoint) {
+    this.endpoint = endpoint;
+  }
+
   public Message getMessage() {
     return message;
   }
@@ -91,27 +151,66 @@ public class WebSocketContext extends RequestContext {
     this.error = error;
   }
 
+  /**
+   * A text or binary message. The payload is a view of the received frame,
+   * valid until the channel returns from {@code onMessage}, retain it to
+   * keep it longer.
+   */
   public static class Message {
-    private final String text;
+    private final ByteBuf payload;
+    private final boolean binary;
     private final WebSocketContext context;
+    private String text;
 
-    Message(String text, WebSocketContext context) {
-      this.text = text;
+    Message(ByteBuf payload, boolean binary, WebSocketContext context) {
+      this.payload = payload;
+      this.binary = binary;
       this.context = context;
     }
 
+    /**
+     * Payload decoded as UTF-8, decoded on first call
+     *
+     * @return message text
+     */
     public String text() {
+      if (text == null) {
+        this.text = payload.toString(StandardCharsets.UTF_8);
+      }
       return text;
     }
 
+    /**
+     * @return payload of the message
+     */
+    public ByteBuf binary() {
+      return payload;
+    }
+
+    /**
+     * @return read-only nio view of the payload
+     */
+    public ByteBuffer byteBuffer() {
+      return payload.nioBuffer().asReadOnlyBuffer();
+    }
+
+    public boolean isBinary() {
+      return binary;
+    }
+
     public WebSocketContext context() {
       return context;
     }
 
     @Override
     public String toString() {
+      if (binary) {
+        return "Message{" +
+                "binary=" + payload.readableBytes() + " bytes" +
+                '}';
+      }
       return "Message{" +
-              "text='" + text + '\'' +
+              "text='" + text() + '\'' +
               '}';
     }
   }
@@ -27,39 +27,61 @@ import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandler;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.handler.codec.TooLongFrameException;
 import io.netty.handler.codec.http.DefaultFullHttpRequest;
 import io.netty.handler.codec.http.FullHttpRequest;
 import io.netty.handler.codec.http.HttpRequest;
 import io.netty.handler.codec.http.websocketx.*;
 import io.netty.util.ReferenceCountUtil;
-import org.apex.ApexContext;
-import org.aquiver.mvc.argument.MethodArgumentGetter;
-import org.aquiver.utils.StringUtils;
+import io.netty.util.Timeout;
+import org.aquiver.server.TimerKit;
 
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
+ * Handshake and frames of one websocket connection, installed by
+ * {@link WebSocketUpgradeHandler} once an upgrade request arrives.
+ * <p>
+ * Fragmented messages are aggregated up to the maximum message size, a
+ * larger message closes the connection with 1009. Text and binary
+ * payloads are handed to the channel without copying, see
+ * {@link WebSocketContext.Message}. Messages sent to a slow connection
+ * are queued and dropped as its {@link Backpressure} says. Idle connections
+ * are probed on the shared {@link TimerKit} timer as its {@link Heartbeat}
+ * says, a connection that stays silent is closed. The channel's
+ * {@code onClose} is called however the connection ends.
+ *
  * @author WangYi
  * @since 2020/7/5
  */
 public class WebSocketHandler extends SimpleChannelInboundHandler<Object> {
-  private final ApexContext apexContext = ApexContext.of();
-  private final WebSocketResolver webSocketResolver;
+  private final WebSocketChannel webSocketChannel;
+  private final int maxMessageSize;
+  private final WebSocketOutbound outbound;
+  private final WebSocketHeartbeat heartbeat;
   private WebSocketContext webSocketContext;
   private WebSocketServerHandshaker handshaker;
-  private WebSocketChannel webSocketChannel;
+  private Timeout heartbeatTimeout;
+  private long lastReadNanos;
+  private long pingNanos;
+  private boolean closed;
 
-  public WebSocketHandler() {
-    final ApexContext context = ApexContext.of();
-    this.webSocketResolver = context.getBean(WebSocketResolver.class);
+  public WebSocketHandler(WebSocketChannel webSocketChannel, int maxMessageSize,
+                          WebSocketOutbound outbound, WebSocketHeartbeat heartbeat) {
+    this.webSocketChannel = Objects.requireNonNull(webSocketChannel, "webSocketChannel can't be null");
+    this.maxMessageSize = maxMessageSize;
+    this.outbound = Objects.requireNonNull(outbound, "outbound can't be null");
+    this.heartbeat = Objects.requireNonNull(heartbeat, "heartbeat can't be null");
   }
 
   @Override
   protected void channelRead0(ChannelHandlerContext ctx, Object msg) {
-    if (msg instanceof HttpRequest) {
+    if (msg instanceof HttpRequest && Objects.isNull(handshaker)) {
       handleHttpRequest(ctx, (HttpRequest) msg);
     } else if (msg instanceof WebSocketFrame) {
+      this.lastReadNanos = System.nanoTime();
       handleWebSocketFrame(ctx, (WebSocketFrame) msg);
     } else {
       ReferenceCountUtil.retain(msg);
@@ -74,32 +96,32 @@ public class WebSocketHandler extends SimpleChannelInboundHandler<Object> {
   }
 
   /**
-   * Handler http request
+   * Handshake the upgrade request, the handler steps aside again when the
+   * websocket version is not supported
    *
    * @param ctx Netty channel context
    * @param req An HTTP request.
    */
   private void handleHttpRequest(ChannelHandlerContext ctx, HttpRequest req) {
+    final WebSocketServerHandshakerFactory wsFactory = new WebSocketServerHandshakerFactory(
+            req.uri(), null, true, maxMessageSize);
+    this.handshaker = wsFactory.newHandshaker(req);
+    if (handshaker == null) {
+      WebSocketServerHandshakerFactory.sendUnsupportedVersionResponse(ctx.channel());
+      ctx.pipeline().remove(this);
+      return;
+    }
     DefaultFullHttpRequest fullHttpRequest = new DefaultFullHttpRequest(req.protocolVersion(), req.method(), req.uri());
     this.webSocketContext = webSocketContext(fullHttpRequest, ctx);
-    MethodArgumentGetter methodArgumentGetter = new MethodArgumentGetter(webSocketContext);
-    this.apexContext.addBean(methodArgumentGetter);
-    if (isWebSocketRequest(req)) {
-      final WebSocketServerHandshakerFactory wsFactory = new WebSocketServerHandshakerFactory(
-              req.uri(), null, true);
-      this.handshaker = wsFactory.newHandshaker(req);
-      if (handshaker == null) {
-        WebSocketServerHandshakerFactory.sendUnsupportedVersionResponse(ctx.channel());
-      } else {
-        handshaker.handshake(ctx.channel(), req);
-        CompletableFuture.completedFuture(webSocketContext)
-                .thenAcceptAsync(session -> webSocketChannel
-                        .onConnect(session), ctx.executor());
-      }
-    } else {
-      ReferenceCountUtil.retain(req);
-      ctx.fireChannelRead(req);
+    handshaker.handshake(ctx.channel(), req);
+    ctx.pipeline().addBefore(ctx.name(), null, new WebSocketFrameAggregator(maxMessageSize));
+    ctx.pipeline().addBefore(ctx.name(), null, outbound.newHandler());
+    if (heartbeat.isEnabled()) {
+      this.lastReadNanos = System.nanoTime();
+      scheduleHeartbeat(ctx, heartbeat.intervalNanos());
     }
+    CompletableFuture.completedFuture(webSocketContext)
+            .thenAcceptAsync(webSocketChannel::onConnect, ctx.executor());
   }
 
   private WebSocketContext webSocketContext(FullHttpRequest httpRequest, ChannelHandlerContext context) {
@@ -117,7 +139,7 @@ public class WebSocketHandler extends SimpleChannelInboundHandler<Object> {
   private void handleWebSocketFrame(ChannelHandlerContext ctx, WebSocketFrame frame) {
     if (frame instanceof CloseWebSocketFrame) {
       handshaker.close(ctx.channel(), (CloseWebSocketFrame) frame.retain());
-      CompletableFuture.completedFuture(webSocketContext).thenAcceptAsync(webSocketChannel::onClose);
+      closed(ctx);
       return;
     }
 
@@ -126,36 +148,90 @@ public class WebSocketHandler extends SimpleChannelInboundHandler<Object> {
       return;
     }
 
-    if (!(frame instanceof TextWebSocketFrame)) {
-      final RuntimeException throwable =
-              new UnsupportedOperationException("Unsupported frame type [" + frame.getClass().getName() + "]");
+    if (frame instanceof TextWebSocketFrame || frame instanceof BinaryWebSocketFrame) {
+      final WebSocketContext.Message message = new WebSocketContext.Message(
+              frame.content().retain(), frame instanceof BinaryWebSocketFrame, webSocketContext);
+      CompletableFuture.completedFuture(message)
+              .thenAcceptAsync(this::onMessage, ctx.executor());
+    }
+  }
 
-      this.handshaker.close(ctx.channel(), new CloseWebSocketFrame());
+  private void scheduleHeartbeat(ChannelHandlerContext ctx, long delayNanos) {
+    this.heartbeatTimeout = TimerKit.newTimeout(timeout -> ctx.executor().execute(() -> heartbeat(ctx)),
+            delayNanos, TimeUnit.NANOSECONDS);
+  }
 
-      webSocketContext.setError(new WebSocketContext.Error(throwable, webSocketContext));
-      CompletableFuture.completedFuture(webSocketContext)
-              .thenAcceptAsync(webSocketChannel::onError, ctx.executor());
+  /**
+   * Runs on the event loop when the connection may have been idle for an
+   * interval or the peer's time to answer a ping is up
+   *
+   * @param ctx Netty channel context
+   */
+  private void heartbeat(ChannelHandlerContext ctx) {
+    if (closed || !ctx.channel().isActive()) {
+      return;
+    }
+    final long now = System.nanoTime();
+    if (pingNanos != 0 && lastReadNanos - pingNanos < 0) {
+      final long waited = now - pingNanos;
+      if (waited >= heartbeat.timeoutNanos()) {
+        heartbeat.evict();
+        ctx.close();
+      } else {
+        scheduleHeartbeat(ctx, heartbeat.timeoutNanos() - waited);
+      }
       return;
     }
-    webSocketContext.setMessage(new WebSocketContext
-            .Message(((TextWebSocketFrame) frame).text(), webSocketContext));
+    this.pingNanos = 0;
+    final long idle = now - lastReadNanos;
+    if (idle < heartbeat.intervalNanos()) {
+      scheduleHeartbeat(ctx, heartbeat.intervalNanos() - idle);
+      return;
+    }
+    this.pingNanos = now;
+    heartbeat.ping();
+    ctx.writeAndFlush(new PingWebSocketFrame());
+    scheduleHeartbeat(ctx, heartbeat.timeoutNanos());
+  }
 
-    CompletableFuture.completedFuture(webSocketContext)
-            .thenAcceptAsync(webSocketChannel::onMessage, ctx.executor());
+  /**
+   * Call {@code onClose} once, whether the peer closed the websocket, the
+   * connection dropped or it was evicted
+   *
+   * @param ctx Netty channel context
+   */
+  private void closed(ChannelHandlerContext ctx) {
+    if (closed) {
+      return;
+    }
+    this.closed = true;
+    if (Objects.nonNull(heartbeatTimeout)) {
+      heartbeatTimeout.cancel();
+    }
+    if (Objects.nonNull(webSocketContext)) {
+      CompletableFuture.completedFuture(webSocketContext)
+              .thenAcceptAsync(webSocketChannel::onClose, ctx.executor());
+    }
+  }
+
+  @Override
+  public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+    closed(ctx);
+    super.channelInactive(ctx);
   }
 
   /**
-   * Determine if it is a websocket request
+   * Deliver a message, its payload is released once the channel returns
    *
-   * @param req An HTTP request.
-   * @return Is it websocket request
+   * @param message aggregated text or binary message
    */
-  private boolean isWebSocketRequest(HttpRequest req) {
-    String uri = StringUtils.substringBefore(req.uri(), "?");
-    return Objects.nonNull(req)
-            && Objects.nonNull((this.webSocketChannel = this.webSocketResolver.lookup(uri)))
-            && req.decoderResult().isSuccess()
-            && "websocket".equals(req.headers().get("Upgrade"));
+  private void onMessage(WebSocketContext.Message message) {
+    try {
+      webSocketContext.setMessage(message);
+      webSocketChannel.onMessage(webSocketContext);
+    } finally {
+      message.binary().release();
+    }
   }
 
   /**
@@ -166,11 +242,15 @@ public class WebSocketHandler extends SimpleChannelInboundHandler<Object> {
    */
   @Override
   public void exceptionCaught(final ChannelHandlerContext ctx, final Throwable cause) {
-    if (null != webSocketChannel) {
+    if (null != webSocketContext) {
       webSocketContext.setError(new WebSocketContext.Error(cause, webSocketContext));
       CompletableFuture.completedFuture(webSocketContext)
               .thenAcceptAsync(webSocketChannel::onError, ctx.executor());
     }
+    if (cause instanceof TooLongFrameException && Objects.nonNull(handshaker)) {
+      handshaker.close(ctx.channel(), new CloseWebSocketFrame(WebSocketCloseStatus.MESSAGE_TOO_BIG));
+      return;
+    }
     ctx.close();
   }
 }
@@ -0,0 +1,106 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.websocket;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The heartbeat settings of one endpoint and the counters of its
+ * connections, see {@link Heartbeat}.
+ *
+ * @author WangYi
+ * @since 2020/9/5
+ */
+public final class WebSocketHeartbeat {
+  private final long intervalMillis;
+  private final long timeoutMillis;
+  private final LongAdder pings = new LongAdder();
+  private final LongAdder evicted = new LongAdder();
+
+  WebSocketHeartbeat(long intervalMillis, long timeoutMillis) {
+    if (intervalMillis < 0 || timeoutMillis <= 0) {
+      throw new IllegalArgumentException("Illegal websocket heartbeat interval "
+              + intervalMillis + " or timeout " + timeoutMillis);
+    }
+    this.intervalMillis = intervalMillis;
+    this.timeoutMillis = timeoutMillis;
+  }
+
+  public boolean isEnabled() {
+    return intervalMillis > 0;
+  }
+
+  public long intervalMillis() {
+    return intervalMillis;
+  }
+
+  public long timeoutMillis() {
+    return timeoutMillis;
+  }
+
+  long intervalNanos() {
+    return TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+  }
+
+  long timeoutNanos() {
+    return TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+  }
+
+  void ping() {
+    pings.increment();
+  }
+
+  void evict() {
+    evicted.increment();
+  }
+
+  /**
+   * Pings sent to idle connections
+   *
+   * @return ping count
+   */
+  public long pings() {
+    return pings.sum();
+  }
+
+  /**
+   * Connections closed because they did not answer a ping
+   *
+   * @return evicted connection count
+   */
+  public long evicted() {
+    return evicted.sum();
+  }
+
+  @Override
+  public String toString() {
+    return "WebSocketHeartbeat{" +
+            "intervalMillis=" + intervalMillis +
+            ", timeoutMillis=" + timeoutMillis +
+            ", pings=" + pings() +
+            ", evicted=" + evicted() +
+            '}';
+  }
+}
@@ -0,0 +1,384 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.websocket;
+
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.ContinuationWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import io.netty.util.ReferenceCounted;
+
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The outbound limits of one endpoint and the counters of its connections,
+ * see {@link Backpressure}.
+ *
+ * @author WangYi
+ * @since 2020/9/5
+ */
+public final class WebSocketOutbound {
+  private static final IllegalStateException DROPPED =
+          new IllegalStateException("Message dropped by the websocket backpressure policy");
+  private static final ClosedChannelException CLOSED = new ClosedChannelException();
+
+  static {
+    DROPPED.setStackTrace(new StackTraceElement[0]);
+    CLOSED.setStackTrace(new StackTraceElement[0]);
+  }
+
+  private final Backpressure.Policy policy;
+  private final int maxQueuedBytes;
+  private final WriteBufferWaterMark waterMark;
+  private final LongAdder queuedBytes = new LongAdder();
+  private final LongAdder queuedMessages = new LongAdder();
+  private final LongAdder dropped = new LongAdder();
+  private final LongAdder droppedBytes = new LongAdder();
+  private final LongAdder coalesced = new LongAdder();
+  private final LongAdder disconnected = new LongAdder();
+
+  WebSocketOutbound(Backpressure.Policy policy, int maxQueuedBytes, int lowWaterMark, int highWaterMark) {
+    this.policy = Objects.requireNonNull(policy, "policy can't be null");
+    this.maxQueuedBytes = maxQueuedBytes;
+    this.waterMark = new WriteBufferWaterMark(lowWaterMark, highWaterMark);
+  }
+
+  /**
+   * Queue of one connection, it sits right before the {@link WebSocketHandler}
+   *
+   * @return outbound handler
+   */
+  ChannelHandler newHandler() {
+    return new OutboundQueue(this);
+  }
+
+  /**
+   * A message that can replace an earlier queued message with the same key
+   *
+   * @param key   message key
+   * @param frame message
+   * @return message to write
+   */
+  static Object keyed(String key, WebSocketFrame frame) {
+    return new Keyed(Objects.requireNonNull(key, "key can't be null"), frame);
+  }
+
+  public Backpressure.Policy policy() {
+    return policy;
+  }
+
+  public int maxQueuedBytes() {
+    return maxQueuedBytes;
+  }
+
+  public WriteBufferWaterMark waterMark() {
+    return waterMark;
+  }
+
+  /**
+   * Bytes waiting in the queues of all connections
+   *
+   * @return queued bytes
+   */
+  public long queuedBytes() {
+    return queuedBytes.sum();
+  }
+
+  /**
+   * Messages waiting in the queues of all connections
+   *
+   * @return queued message count
+   */
+  public long queuedMessages() {
+    return queuedMessages.sum();
+  }
+
+  /**
+   * Messages dropped by the policy, replaced ones included
+   *
+   * @return dropped message count
+   */
+  public long dropped() {
+    return dropped.sum();
+  }
+
+  public long droppedBytes() {
+    return droppedBytes.sum();
+  }
+
+  /**
+   * Queued messages replaced by a newer message with the same key
+   *
+   * @return replaced message count
+   */
+  public long coalesced() {
+    return coalesced.sum();
+  }
+
+  /**
+   * Connections closed because their queue was full
+   *
+   * @return closed connection count
+   */
+  public long disconnected() {
+    return disconnected.sum();
+  }
+
+  @Override
+  public String toString() {
+    return "WebSocketOutbound{" +
+            "policy=" + policy +
+            ", maxQueuedBytes=" + maxQueuedBytes +
+            ", queuedBytes=" + queuedBytes() +
+            ", queuedMessages=" + queuedMessages() +
+            ", dropped=" + dropped() +
+            ", droppedBytes=" + droppedBytes() +
+            ", coalesced=" + coalesced() +
+            ", disconnected=" + disconnected() +
+            '}';
+  }
+
+  /**
+   * Passes messages on while the channel is writable and queues them
+   * otherwise. Control frames are never queued, fragments of a message are
+   * queued but never dropped.
+   */
+  private static final class OutboundQueue extends ChannelDuplexHandler {
+    private final WebSocketOutbound outbound;
+    private final ArrayDeque<Pending> queue = new ArrayDeque<>();
+    private final Map<String, Pending> latest = new HashMap<>();
+    private long bytes;
+
+    OutboundQueue(WebSocketOutbound outbound) {
+      this.outbound = outbound;
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) {
+      ctx.channel().config().setWriteBufferWaterMark(outbound.waterMark);
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+      String key = null;
+      Object message = msg;
+      if (msg instanceof Keyed) {
+        key = ((Keyed) msg).key;
+        message = ((Keyed) msg).frame;
+      }
+      if (!isData(message) || (queue.isEmpty() && ctx.channel().isWritable())) {
+        ctx.write(message, promise);
+        return;
+      }
+      enqueue(ctx, new Pending((WebSocketFrame) message, key, promise));
+    }
+
+    private void enqueue(ChannelHandlerContext ctx, Pending pending) {
+      final Backpressure.Policy policy = outbound.policy;
+      final int max = outbound.maxQueuedBytes;
+      if (policy == Backpressure.Policy.DISCONNECT && bytes + pending.size > max) {
+        outbound.disconnected.increment();
+        discard(pending, CLOSED);
+        ctx.close();
+        return;
+      }
+      if (pending.droppable && (pending.size > max
+              || (policy == Backpressure.Policy.DROP_NEWEST && bytes + pending.size > max))) {
+        drop(pending);
+        return;
+      }
+      if (policy == Backpressure.Policy.COALESCE && Objects.nonNull(pending.key)) {
+        Pending previous = latest.get(pending.key);
+        if (Objects.nonNull(previous) && queue.remove(previous)) {
+          dequeued(previous);
+          drop(previous);
+          outbound.coalesced.increment();
+        }
+        latest.put(pending.key, pending);
+      }
+      final Iterator<Pending> iterator = queue.iterator();
+      while (bytes + pending.size > max && iterator.hasNext()) {
+        Pending oldest = iterator.next();
+        if (oldest.droppable) {
+          iterator.remove();
+          dequeued(oldest);
+          drop(oldest);
+        }
+      }
+      queue.add(pending);
+      bytes += pending.size;
+      outbound.queuedBytes.add(pending.size);
+      outbound.queuedMessages.increment();
+    }
+
+    @Override
+    public void flush(ChannelHandlerContext ctx) {
+      drain(ctx);
+      ctx.flush();
+    }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) {
+      if (ctx.channel().isWritable() && !queue.isEmpty()) {
+        drain(ctx);
+        ctx.flush();
+      }
+      ctx.fireChannelWritabilityChanged();
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) {
+      discardAll();
+      ctx.fireChannelInactive();
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) {
+      discardAll();
+    }
+
+    private void drain(ChannelHandlerContext ctx) {
+      while (!queue.isEmpty() && ctx.channel().isWritable()) {
+        Pending pending = queue.poll();
+        dequeued(pending);
+        ctx.write(pending.frame, pending.promise);
+      }
+    }
+
+    private void dequeued(Pending pending) {
+      bytes -= pending.size;
+      outbound.queuedBytes.add(-pending.size);
+      outbound.queuedMessages.decrement();
+      if (Objects.nonNull(pending.key) && latest.get(pending.key) == pending) {
+        latest.remove(pending.key);
+      }
+    }
+
+    private void drop(Pending pending) {
+      outbound.dropped.increment();
+      outbound.droppedBytes.add(pending.size);
+      discard(pending, DROPPED);
+    }
+
+    private void discardAll() {
+      Pending pending;
+      while ((pending = queue.poll()) != null) {
+        dequeued(pending);
+        discard(pending, CLOSED);
+      }
+    }
+
+    private static void discard(Pending pending, Throwable cause) {
+      pending.frame.release();
+      if (!pending.promise.isVoid()) {
+        pending.promise.tryFailure(cause);
+      }
+    }
+
+    private static boolean isData(Object message) {
+      return message instanceof TextWebSocketFrame || message instanceof BinaryWebSocketFrame
+              || message instanceof ContinuationWebSocketFrame;
+    }
+  }
+
+  private static final class Pending {
+    private final WebSocketFrame frame;
+    private final String key;
+    private final ChannelPromise promise;
+    private final int size;
+    private final boolean droppable;
+
+    Pending(WebSocketFrame frame, String key, ChannelPromise promise) {
+      this.frame = frame;
+      this.key = key;
+      this.promise = promise;
+      this.size = frame.content().readableBytes();
+      this.droppable = frame.isFinalFragment() && !(frame instanceof ContinuationWebSocketFrame);
+    }
+  }
+
+  /**
+   * Carries the key of a message to the queue, released along with its frame
+   * when it never gets there
+   */
+  private static final class Keyed implements ReferenceCounted {
+    private final String key;
+    private final WebSocketFrame frame;
+
+    Keyed(String key, WebSocketFrame frame) {
+      this.key = key;
+      this.frame = Objects.requireNonNull(frame, "frame can't be null");
+    }
+
+    @Override
+    public int refCnt() {
+      return frame.refCnt();
+    }
+
+    @Override
+    public ReferenceCounted retain() {
+      frame.retain();
+      return this;
+    }
+
+    @Override
+    public ReferenceCounted retain(int increment) {
+      frame.retain(increment);
+      return this;
+    }
+
+    @Override
+    public ReferenceCounted touch() {
+      frame.touch();
+      return this;
+    }
+
+    @Override
+    public ReferenceCounted touch(Object hint) {
+      frame.touch(hint);
+      return this;
+    }
+
+    @Override
+    public boolean release() {
+      return frame.release();
+    }
+
+    @Override
+    public boolean release(int decrement) {
+      return frame.release(decrement);
+    }
+  }
+}
@@ -24,20 +24,30 @@
 package org.aquiver.websocket;
 
 import org.apex.ApexContext;
+import org.apex.Environment;
+import org.aquiver.Aquiver;
 import org.aquiver.RouteRepeatException;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
 
+import static org.aquiver.server.Const.*;
+
 /**
  * @author WangYi
  * @since 2020/8/28
  */
 public class WebSocketResolver {
   private final Map<String, WebSocketChannel> webSockets = new ConcurrentHashMap<>(4);
+  private final Map<String, WebSocketCompression> compressions = new ConcurrentHashMap<>(4);
+  private final Map<String, Backpressure> backpressures = new ConcurrentHashMap<>(4);
+  private final Map<String, WebSocketOutbound> outbounds = new ConcurrentHashMap<>(4);
+  private final Map<String, Heartbeat> heartbeatConfigs = new ConcurrentHashMap<>(4);
+  private final Map<String, WebSocketHeartbeat> heartbeats = new ConcurrentHashMap<>(4);
   private final ApexContext context = ApexContext.of();
 
   public void registerWebSocket(String path, WebSocketChannel webSocketChannel) {
@@ -58,6 +68,16 @@ public class WebSocketResolver {
     if (this.webSockets.containsKey(webSocketPath)) {
       throw new RouteRepeatException("Registered websocket channel URL is duplicated : " + webSocketPath);
     } else {
+      if (websocketChannel.isAnnotationPresent(PerMessageDeflate.class)) {
+        this.compressions.put(webSocketPath,
+                new WebSocketCompression(websocketChannel.getAnnotation(PerMessageDeflate.class)));
+      }
+      if (websocketChannel.isAnnotationPresent(Backpressure.class)) {
+        this.backpressures.put(webSocketPath, websocketChannel.getAnnotation(Backpressure.class));
+      }
+      if (websocketChannel.isAnnotationPresent(Heartbeat.class)) {
+        this.heartbeatConfigs.put(webSocketPath, websocketChannel.getAnnotation(Heartbeat.class));
+      }
       if (implInterface.contains(WebSocketChannel.class)) {
         final WebSocketChannel channel = (WebSocketChannel) context.addBean(websocketChannel);
         webSockets.put(webSocketPath, channel);
@@ -69,7 +89,82 @@ public class WebSocketResolver {
     }
   }
 
+  public boolean isEmpty() {
+    return this.webSockets.isEmpty();
+  }
+
   public WebSocketChannel lookup(String path) {
     return this.webSockets.getOrDefault(path, null);
   }
+
+  /**
+   * Find the permessage-deflate settings of a websocket path
+   *
+   * @param path websocket path
+   * @return settings or null when the endpoint is not compressed
+   */
+  public WebSocketCompression compression(String path) {
+    return this.compressions.get(path);
+  }
+
+  /**
+   * Find the outbound limits and counters of a websocket path, created from
+   * the {@link Backpressure} of the endpoint and the server settings when
+   * first asked for
+   *
+   * @param path websocket path
+   * @return outbound of the endpoint or null when the path is not registered
+   */
+  public WebSocketOutbound outbound(String path) {
+    if (!this.webSockets.containsKey(path)) {
+      return null;
+    }
+    return this.outbounds.computeIfAbsent(path, key -> newOutbound(backpressures.get(key)));
+  }
+
+  private WebSocketOutbound newOutbound(Backpressure config) {
+    final Environment environment = Aquiver.of().environment();
+    final Backpressure.Policy policy = Objects.nonNull(config) ? config.policy() : Backpressure.Policy.valueOf(
+            environment.getString(PATH_SERVER_WEBSOCKET_OUTBOUND_POLICY, SERVER_WEBSOCKET_OUTBOUND_POLICY)
+                    .trim().toUpperCase());
+    final int maxQueuedBytes = setting(Objects.nonNull(config) ? config.maxQueuedBytes() : -1, environment
+            .getInt(PATH_SERVER_WEBSOCKET_OUTBOUND_MAX_QUEUED_BYTES, SERVER_WEBSOCKET_OUTBOUND_MAX_QUEUED_BYTES));
+    final int lowWaterMark = setting(Objects.nonNull(config) ? config.lowWaterMark() : -1, environment
+            .getInt(PATH_SERVER_WEBSOCKET_WRITE_BUFFER_LOW, SERVER_WEBSOCKET_WRITE_BUFFER_LOW));
+    final int highWaterMark = setting(Objects.nonNull(config) ? config.highWaterMark() : -1, environment
+            .getInt(PATH_SERVER_WEBSOCKET_WRITE_BUFFER_HIGH, SERVER_WEBSOCKET_WRITE_BUFFER_HIGH));
+    return new WebSocketOutbound(policy, maxQueuedBytes, lowWaterMark, highWaterMark);
+  }
+
+  /**
+   * Find the heartbeat settings and counters of a websocket path, created
+   * from the {@link Heartbeat} of the endpoint and the server settings when
+   * first asked for
+   *
+   * @param path websocket path
+   * @return heartbeat of the endpoint or null when the path is not registered
+   */
+  public WebSocketHeartbeat heartbeat(String path) {
+    if (!this.webSockets.containsKey(path)) {
+      return null;
+    }
+    return this.heartbeats.computeIfAbsent(path, key -> newHeartbeat(heartbeatConfigs.get(key)));
+  }
+
+  private WebSocketHeartbeat newHeartbeat(Heartbeat config) {
+    final Environment environment = Aquiver.of().environment();
+    final long interval = setting(Objects.nonNull(config) ? config.interval() : -1, environment
+            .getLong(PATH_SERVER_WEBSOCKET_HEARTBEAT_INTERVAL, SERVER_WEBSOCKET_HEARTBEAT_INTERVAL));
+    final long timeout = setting(Objects.nonNull(config) ? config.timeout() : -1, environment
+            .getLong(PATH_SERVER_WEBSOCKET_HEARTBEAT_TIMEOUT, SERVER_WEBSOCKET_HEARTBEAT_TIMEOUT));
+    return new WebSocketHeartbeat(interval, timeout);
+  }
+
+  private static long setting(long value, long serverValue) {
+    return value < 0 ? serverValue : value;
+  }
+
+  private static int setting(int value, int serverValue) {
+    return value < 0 ? serverValue : value;
+  }
 }
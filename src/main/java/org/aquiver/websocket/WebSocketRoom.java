@@ -0,0 +1,247 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.websocket;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.EventLoop;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.group.DefaultChannelGroup;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import io.netty.util.concurrent.GlobalEventExecutor;
+import org.aquiver.websocket.WebSocketCompression.SharedDeflate;
+
+import java.util.*;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * A named set of websocket connections that receive the same messages.
+ * <pre>{@code
+ *  @Inject
+ *  private WebSocketRooms rooms;
+ *
+ *  @OnConnect
+ *  public void connect(WebSocketContext context) {
+ *    rooms.room("lobby").join(context);
+ *  }
+ *
+ *  @OnMessage
+ *  public void message(WebSocketContext context) {
+ *    rooms.room("lobby").broadcast(context.getMessage().text());
+ *  }
+ * }</pre>
+ * A broadcast encodes its frame once, every member gets a retained
+ * duplicate of it. Members that negotiated permessage-deflate without
+ * server context takeover share one compressed copy per window size, the
+ * others compress on their own. Members are grouped by event loop, each
+ * loop writes to its members and flushes them in a single task. Closed
+ * connections leave the room by themselves.
+ *
+ * @author WangYi
+ * @since 2020/9/5
+ */
+public final class WebSocketRoom {
+  /**
+   * What a broadcast does with a member that is not writable
+   */
+  public enum Policy {
+    /** The member misses the message. */
+    SKIP,
+    /** The message is queued as the endpoint's {@link Backpressure} says. */
+    QUEUE,
+    /** The member is disconnected. */
+    CLOSE
+  }
+
+  private final String name;
+  private final Policy policy;
+  private final ChannelGroup channels;
+
+  WebSocketRoom(String name, Policy policy) {
+    this.name = Objects.requireNonNull(name, "name can't be null");
+    this.policy = Objects.requireNonNull(policy, "policy can't be null");
+    this.channels = new DefaultChannelGroup(name, GlobalEventExecutor.INSTANCE);
+  }
+
+  public String name() {
+    return name;
+  }
+
+  public Policy policy() {
+    return policy;
+  }
+
+  public boolean join(WebSocketContext context) {
+    return channels.add(channel(context));
+  }
+
+  public boolean leave(WebSocketContext context) {
+    return channels.remove(channel(context));
+  }
+
+  public boolean contains(WebSocketContext context) {
+    return channels.contains(channel(context));
+  }
+
+  /**
+   * Number of connected members
+   *
+   * @return member count
+   */
+  public int size() {
+    return channels.size();
+  }
+
+  /**
+   * Send a text message to every member
+   *
+   * @param text message
+   * @return number of members the message was written to
+   */
+  public int broadcast(String text) {
+    Objects.requireNonNull(text, "text can't be null");
+    return broadcast(new TextWebSocketFrame(
+            ByteBufUtil.writeUtf8(PooledByteBufAllocator.DEFAULT, text)));
+  }
+
+  /**
+   * Send a binary message to every member, the buffer is released once
+   * written everywhere
+   *
+   * @param data message payload
+   * @return number of members the message was written to
+   */
+  public int broadcast(ByteBuf data) {
+    Objects.requireNonNull(data, "data can't be null");
+    return broadcast(new BinaryWebSocketFrame(data));
+  }
+
+  /**
+   * Send a frame to every member, the frame is released once written
+   * everywhere
+   *
+   * @param frame frame
+   * @return number of members the frame was written to
+   */
+  public int broadcast(WebSocketFrame frame) {
+    Objects.requireNonNull(frame, "frame can't be null");
+    final Map<EventLoop, Delivery> deliveries = new IdentityHashMap<>();
+    final Map<SharedDeflate, WebSocketFrame> compressed = new HashMap<>(2);
+    int recipients = 0;
+    try {
+      for (Channel channel : channels) {
+        if (!channel.isWritable()) {
+          if (policy == Policy.CLOSE) {
+            channel.close();
+            continue;
+          }
+          if (policy == Policy.SKIP) {
+            continue;
+          }
+        }
+        WebSocketFrame message = frame;
+        SharedDeflate deflate = channel.attr(WebSocketCompression.SHARED_DEFLATE).get();
+        if (Objects.nonNull(deflate) && deflate.accepts(frame)) {
+          message = compressed.computeIfAbsent(deflate, key -> key.compress(frame));
+        }
+        deliveries.computeIfAbsent(channel.eventLoop(), loop -> new Delivery()).add(channel, message);
+        recipients++;
+      }
+      for (Map.Entry<EventLoop, Delivery> entry : deliveries.entrySet()) {
+        final Delivery delivery = entry.getValue();
+        delivery.retain();
+        try {
+          entry.getKey().execute(delivery::write);
+        } catch(RejectedExecutionException e) {
+          // the loop is shutting down, its members are closing anyway
+          delivery.release();
+          recipients -= delivery.size();
+        }
+      }
+    } finally {
+      frame.release();
+      compressed.values().forEach(WebSocketFrame::release);
+    }
+    return recipients;
+  }
+
+  /**
+   * The writes of one broadcast on one event loop
+   */
+  private static final class Delivery {
+    private final List<Channel> members = new ArrayList<>();
+    private final List<WebSocketFrame> messages = new ArrayList<>();
+    private final Set<WebSocketFrame> frames = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    void add(Channel channel, WebSocketFrame message) {
+      members.add(channel);
+      messages.add(message);
+      frames.add(message);
+    }
+
+    int size() {
+      return members.size();
+    }
+
+    void retain() {
+      frames.forEach(WebSocketFrame::retain);
+    }
+
+    void release() {
+      frames.forEach(WebSocketFrame::release);
+    }
+
+    void write() {
+      try {
+        for (int i = 0; i < members.size(); i++) {
+          Channel channel = members.get(i);
+          channel.write(messages.get(i).retainedDuplicate(), channel.voidPromise());
+        }
+        for (Channel channel : members) {
+          channel.flush();
+        }
+      } finally {
+        release();
+      }
+    }
+  }
+
+  private static Channel channel(WebSocketContext context) {
+    Objects.requireNonNull(context, "context can't be null");
+    return context.session().channelHandlerContext().channel();
+  }
+
+  @Override
+  public String toString() {
+    return "WebSocketRoom{" +
+            "name='" + name + '\'' +
+            ", policy=" + policy +
+            ", size=" + size() +
+            '}';
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.websocket;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of the {@link WebSocketRoom}s, rooms are created on first use.
+ *
+ * @author WangYi
+ * @since 2020/9/5
+ */
+public final class WebSocketRooms {
+  private static final Logger log = LoggerFactory.getLogger(WebSocketRooms.class);
+
+  private final Map<String, WebSocketRoom> rooms = new ConcurrentHashMap<>();
+
+  /**
+   * Get or create a room that skips members which are not writable
+   *
+   * @param name room name
+   * @return room
+   */
+  public WebSocketRoom room(String name) {
+    return room(name, WebSocketRoom.Policy.SKIP);
+  }
+
+  /**
+   * Get or create a room, the policy only applies when the room is created
+   *
+   * @param name   room name
+   * @param policy what a broadcast does with members that are not writable
+   * @return room
+   */
+  public WebSocketRoom room(String name, WebSocketRoom.Policy policy) {
+    Objects.requireNonNull(name, "name can't be null");
+    return rooms.computeIfAbsent(name, key -> {
+      log.debug("register websocket room: {} -> {}", key, policy);
+      return new WebSocketRoom(key, policy);
+    });
+  }
+
+  /**
+   * Find a room without creating it
+   *
+   * @param name room name
+   * @return room or null
+   */
+  public WebSocketRoom lookup(String name) {
+    return rooms.get(name);
+  }
+
+  /**
+   * Drop a room, its members stay connected
+   *
+   * @param name room name
+   * @return the removed room or null
+   */
+  public WebSocketRoom remove(String name) {
+    return rooms.remove(name);
+  }
+
+  public Collection<WebSocketRoom> rooms() {
+    return Collections.unmodifiableCollection(rooms.values());
+  }
+}
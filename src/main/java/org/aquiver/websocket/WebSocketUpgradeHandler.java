@@ -0,0 +1,85 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 1619kHz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.aquiver.websocket;
+
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpRequest;
+import org.aquiver.utils.StringUtils;
+
+import java.util.Objects;
+
+/**
+ * Shared by every connection, passes plain http requests on untouched. An
+ * upgrade request for a registered websocket path gets a
+ * {@link WebSocketHandler} of its own, which performs the handshake and
+ * takes the connection over, preceded by the permessage-deflate
+ * negotiation when the endpoint offers it.
+ *
+ * @author WangYi
+ * @since 2020/9/5
+ */
+@ChannelHandler.Sharable
+public final class WebSocketUpgradeHandler extends ChannelInboundHandlerAdapter {
+  private final WebSocketResolver webSocketResolver;
+  private final int maxMessageSize;
+
+  /**
+   * @param webSocketResolver registered websocket endpoints
+   * @param maxMessageSize    largest message in bytes, fragments included
+   */
+  public WebSocketUpgradeHandler(WebSocketResolver webSocketResolver, int maxMessageSize) {
+    this.webSocketResolver = Objects.requireNonNull(webSocketResolver, "webSocketResolver can't be null");
+    this.maxMessageSize = maxMessageSize;
+  }
+
+  @Override
+  public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+    if (msg instanceof HttpRequest && isUpgrade((HttpRequest) msg)) {
+      HttpRequest request = (HttpRequest) msg;
+      String path = StringUtils.substringBefore(request.uri(), "?");
+      WebSocketChannel webSocketChannel = webSocketResolver.lookup(path);
+      if (Objects.nonNull(webSocketChannel) && request.decoderResult().isSuccess()) {
+        ctx.pipeline().addAfter(ctx.name(), null, new WebSocketHandler(webSocketChannel, maxMessageSize,
+                webSocketResolver.outbound(path), webSocketResolver.heartbeat(path)));
+        WebSocketCompression compression = webSocketResolver.compression(path);
+        if (Objects.nonNull(compression)) {
+          ctx.pipeline().addAfter(ctx.name(), null, compression.newHandler(ctx.channel()));
+        }
+        ctx.pipeline().remove(this);
+      }
+    }
+    ctx.fireChannelRead(msg);
+  }
+
+  private static boolean isUpgrade(HttpRequest request) {
+    HttpHeaders headers = request.headers();
+    return headers.containsValue(HttpHeaderNames.UPGRADE, HttpHeaderValues.WEBSOCKET, true)
+            && headers.containsValue(HttpHeaderNames.CONNECTION, HttpHeaderValues.UPGRADE, true);
+  }
+}
@@ -24,7 +24,7 @@
 package org.aquiver.websocket;
 
 import org.apex.ApexContext;
-import org.aquiver.mvc.argument.MethodArgumentGetter;
+import org.aquiver.mvc.argument.ArgumentPlan;
 import org.aquiver.websocket.action.OnClose;
 import org.aquiver.websocket.action.OnConnect;
 import org.aquiver.websocket.action.OnError;
@@ -33,32 +33,38 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
-import java.lang.reflect.Parameter;
 import java.util.*;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 /**
+ * Adapts a {@link WebSocket} class declaring action annotations to
+ * {@link WebSocketChannel}. The instance, the method handles and the
+ * argument plans of the actions are created when the endpoint is
+ * registered, an event is then dispatched with a direct call resolving
+ * the arguments from the connection's own context.
+ *
  * @author WangYi
  * @since 2020/7/13
  */
 public class WebSocketWrapper implements WebSocketChannel {
   private static final Logger log = LoggerFactory.getLogger(WebSocketWrapper.class);
+  private static final MethodType ENDPOINT_TYPE = MethodType.methodType(Object.class);
 
-  private final ApexContext apexContext = ApexContext.of();
   private final MethodHandles.Lookup lookup = MethodHandles.lookup();
-  private final Map<Class<? extends Annotation>, Method> methodCache;
-  private MethodArgumentGetter methodArgumentGetter;
-  private Class<?> webSocketClass;
+  private final Map<Class<? extends Annotation>, ActionInvoker> invokers;
+  private Object singleton;
+  private MethodHandle constructor;
 
   public WebSocketWrapper() {
-    this.methodCache = new HashMap<>();
+    this.invokers = new HashMap<>(4);
   }
 
   public void initialize(Class<?> webSocketClass) {
-    this.webSocketClass = webSocketClass;
     Method[] methods = webSocketClass.getMethods();
     if (methods.length == 0) {
       return;
@@ -75,7 +81,21 @@ public class WebSocketWrapper implements WebSocketChannel {
       throw new RuntimeException("Do not found any annotation of " +
               "[@OnClose / @OnConnect / @OnError /@OnMessage] in class: " + webSocketClass.getName());
     }
-    this.methodCache.putAll(cache);
+
+    WebSocket webSocket = webSocketClass.getAnnotation(WebSocket.class);
+    try {
+      if (Objects.nonNull(webSocket) && webSocket.scope() == WebSocket.Scope.CONNECTION) {
+        this.constructor = lookup.findConstructor(webSocketClass, MethodType.methodType(void.class))
+                .asType(ENDPOINT_TYPE);
+      } else {
+        this.singleton = ApexContext.of().addBean(webSocketClass);
+      }
+      for (Map.Entry<Class<? extends Annotation>, Method> entry : cache.entrySet()) {
+        this.invokers.put(entry.getKey(), new ActionInvoker(lookup, entry.getValue()));
+      }
+    } catch(NoSuchMethodException | IllegalAccessException e) {
+      throw new IllegalArgumentException("Can't access websocket class: " + webSocketClass.getName(), e);
+    }
   }
 
   private void cacheMethod(Map<Class<? extends Annotation>, Method> cache, Method[] methods,
@@ -113,24 +133,48 @@ public class WebSocketWrapper implements WebSocketChannel {
   }
 
   private void invokeAction(Class<? extends Annotation> actionAnnotation, WebSocketContext webSocketContext) {
-    if (Objects.isNull(methodArgumentGetter)) {
-      this.methodArgumentGetter = apexContext.getBean(MethodArgumentGetter.class);
-    }
-
-    if (Objects.isNull(methodArgumentGetter)) {
-      throw new IllegalArgumentException("methodArgumentGetter can't be null");
-    }
-    if (!methodCache.containsKey(actionAnnotation)) {
+    final ActionInvoker invoker = invokers.get(actionAnnotation);
+    if (Objects.isNull(invoker)) {
       return;
     }
-    Method method = methodCache.get(actionAnnotation);
     try {
-      final List<Object> invokeArguments = this.methodArgumentGetter.getParams(method.getParameters());
-      this.lookup.unreflect(method).bindTo(webSocketClass.newInstance())
-              .invokeWithArguments(invokeArguments);
+      invoker.invoke(endpoint(webSocketContext), webSocketContext);
     } catch(Throwable e) {
       log.error("An exception occurred when obtaining invoke param", e);
       webSocketContext.disconnect();
     }
   }
+
+  private Object endpoint(WebSocketContext webSocketContext) throws Throwable {
+    if (Objects.isNull(constructor)) {
+      return singleton;
+    }
+    Object endpoint = webSocketContext.endpoint();
+    if (Objects.isNull(endpoint)) {
+      endpoint = (Object) constructor.invokeExact();
+      webSocketContext.endpoint(endpoint);
+    }
+    return endpoint;
+  }
+
+  /**
+   * Method handle of an action taking the endpoint and the spread arguments
+   */
+  private static final class ActionInvoker {
+    private static final MethodType INVOKER_TYPE = MethodType.methodType(void.class, Object.class, Object[].class);
+
+    private final MethodHandle handle;
+    private final ArgumentPlan argumentPlan;
+
+    ActionInvoker(MethodHandles.Lookup lookup, Method method) throws IllegalAccessException {
+      this.argumentPlan = ArgumentPlan.of(method);
+      this.handle = lookup.unreflect(method)
+              .asSpreader(Object[].class, argumentPlan.size())
+              .asType(INVOKER_TYPE);
+    }
+
+    void invoke(Object endpoint, WebSocketContext webSocketContext) throws Throwable {
+      handle.invokeExact(endpoint, argumentPlan.resolve(webSocketContext));
+    }
+  }
 }